@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import environments.Environment;
+
+/**
+ * measures whole time-steps of environments of different sizes and densities.
+ * 
+ * @author danpr
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentBenchmark {
+	@Param({ "30", "60" })
+	public int size; // width and height of the environment (tiles)
+
+	@Param({ "sparse", "dense" })
+	public String density; // how long the environment was grown for (see Workloads)
+
+	private Path checkpoint; // grown environment
+	private Environment environment; // copy of the grown environment being simulated
+
+	/**
+	 * grow the environment once per trial.
+	 */
+	@Setup(Level.Trial)
+	public void grow() {
+		checkpoint = Workloads.grow(size, density);
+	}
+
+	/**
+	 * start each iteration from the grown environment.
+	 */
+	@Setup(Level.Iteration)
+	public void load() {
+		environment = Workloads.load(checkpoint);
+	}
+
+	/**
+	 * simulate a single time-step.
+	 * 
+	 * @return population afterwards
+	 */
+	@Benchmark
+	public int simulateSingle() {
+		environment.simulateSingle(1);
+		return environment.getPopulation();
+	}
+}
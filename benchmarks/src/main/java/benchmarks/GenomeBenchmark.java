@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import creatures.Plant;
+import environments.SimParameters;
+import environments.SimRandom;
+import genetics.Genome;
+import genetics.GenomeTable;
+
+/**
+ * measures the operations on single genomes, over a fixed set of random plant
+ * genomes.
+ * 
+ * @author danpr
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenomeBenchmark {
+	private static final int N_GENOMES = 1024; // number of genomes cycled through (power of 2)
+
+	private final long[] genomes = new long[N_GENOMES]; // random plant genomes
+	private final GenomeTable table = new GenomeTable(); // table holding one of each genome
+	private SimRandom rng; // source of randomness for mutation
+	private int next = 0; // index of the next genome to use
+
+	/**
+	 * generate the genomes and start each iteration from the same random state.
+	 */
+	@Setup(Level.Iteration)
+	public void generate() {
+		rng = new SimRandom(Workloads.SEED);
+		for (int i = 0; i < N_GENOMES; i++) {
+			genomes[i] = Plant.randomPlant(rng, SimParameters.DEFAULT);
+			if (table.indexOf(genomes[i]) < 0) {
+				table.add(genomes[i]);
+			}
+		}
+		next = 0;
+	}
+
+	/**
+	 * get the next genome to use.
+	 * 
+	 * @return
+	 */
+	private long nextGenome() {
+		next = (next + 1) & (N_GENOMES - 1);
+		return genomes[next];
+	}
+
+	/**
+	 * create the mutated genome of an offspring.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public long mutate() {
+		return Genome.mutate(nextGenome(), rng);
+	}
+
+	/**
+	 * measure the difference between two genomes, as done for every species
+	 * compared with a newborn plant.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public float distance() {
+		return Genome.distance(nextGenome(), genomes[0]);
+	}
+
+	/**
+	 * store and release a genome that is already stored, as done for every birth
+	 * and death.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public int intern() {
+		int id = table.add(nextGenome());
+
+		table.release(id);
+		return id;
+	}
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import creatures.Creature;
+import environments.Environment;
+import environments.EnvironmentSnapshot;
+import environments.PopulationStats;
+import genetics.GeneType;
+
+/**
+ * measures what the graphical interface reads from an environment each frame:
+ * copying its state into a snapshot, and reading the statistics drawn in each
+ * chart.
+ * 
+ * @author danpr
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+	private static final GeneType[] GENE_TYPES = GeneType.values(); // cached to avoid copying values() on every read
+
+	@Param({ "sparse", "dense" })
+	public String density; // how long the environment was grown for (see Workloads)
+
+	private Environment environment; // grown environment (never simulated)
+	private PopulationStats stats; // statistics of the grown environment
+
+	/**
+	 * grow the environment once per trial.
+	 */
+	@Setup
+	public void grow() {
+		Path checkpoint = Workloads.grow(60, density);
+
+		environment = Workloads.load(checkpoint);
+		stats = environment.getStats();
+	}
+
+	/**
+	 * copy the state of the environment for display.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public EnvironmentSnapshot snapshot() {
+		return environment.snapshot();
+	}
+
+	/**
+	 * copy the population statistics.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public PopulationStats copyStats() {
+		return stats.copy();
+	}
+
+	/**
+	 * read every value shown by the size histogram.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public long refreshSizes() {
+		long total = 0;
+
+		for (int i = 1; i < Creature.MAX_SIZE; i++) {
+			total += stats.getSizeCount(i);
+		}
+		return total;
+	}
+
+	/**
+	 * read every value shown by the biomass and gene history charts.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public float refreshHistories() {
+		float total = stats.getBiomass();
+
+		for (GeneType type : GENE_TYPES) {
+			total += stats.getGeneMagnitude(type);
+		}
+		return total;
+	}
+
+	/**
+	 * read every value shown by the gene histograms.
+	 * 
+	 * @return
+	 */
+	@Benchmark
+	public long refreshGenes() {
+		long total = 0;
+
+		for (GeneType type : GENE_TYPES) {
+			for (int j = 0; j < type.STEPS; j++) {
+				total += stats.getGeneCount(type, j);
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import creatures.Plant;
+import environments.Environment;
+import environments.EnvironmentTile;
+import environments.SimParameters;
+import environments.SimRandom;
+import environments.StepContext;
+
+/**
+ * measures the simulation of single tiles, visiting each occupied tile of a
+ * grown environment in turn.
+ * 
+ * @author danpr
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileBenchmark {
+	@Param({ "sparse", "dense" })
+	public String density; // how long the environment was grown for (see Workloads)
+
+	private Path checkpoint; // grown environment
+	private Environment environment; // copy of the grown environment being simulated
+	private StepContext context; // handler of births and deaths on the tiles
+	private EnvironmentTile[] tiles; // tiles with plants on them when loaded
+	private int next = 0; // index of the next tile to visit
+
+	/**
+	 * grow the environment once per trial.
+	 */
+	@Setup(Level.Trial)
+	public void grow() {
+		checkpoint = Workloads.grow(60, density);
+	}
+
+	/**
+	 * start each iteration from the grown environment.
+	 */
+	@Setup(Level.Iteration)
+	public void load() {
+		ArrayList<EnvironmentTile> occupied = new ArrayList<EnvironmentTile>();
+
+		environment = Workloads.load(checkpoint);
+		context = new StepContext(environment, new SimRandom(Workloads.SEED));
+		for (int i = 0; i < environment.getWidth(); i++) {
+			for (int j = 0; j < environment.getHeight(); j++) {
+				if (environment.getPlants(i, j).getCount() > 0) {
+					occupied.add(environment.getTile(i, j));
+				}
+			}
+		}
+		tiles = occupied.toArray(new EnvironmentTile[0]);
+		next = 0;
+	}
+
+	/**
+	 * get the next occupied tile to visit.
+	 * 
+	 * @return
+	 */
+	private EnvironmentTile nextTile() {
+		EnvironmentTile tile = tiles[next];
+
+		next = next + 1 < tiles.length ? next + 1 : 0;
+		return tile;
+	}
+
+	/**
+	 * share sunlight between the plants of a tile.
+	 * 
+	 * @return energy left over
+	 */
+	@Benchmark
+	public float photosynthesise() {
+		return Plant.photosynthesise(nextTile().getPlants(), Workloads.SUNLIGHT, SimParameters.DEFAULT);
+	}
+
+	/**
+	 * let each plant of a tile grow, reproduce or die.
+	 * 
+	 * @return plants on the tile afterwards
+	 */
+	@Benchmark
+	public int chooseBehaviour() {
+		EnvironmentTile tile = nextTile();
+
+		Plant.chooseBehaviour(tile.getPlants(), context, tile);
+		context.apply();
+		return tile.getPlants().getCount();
+	}
+}
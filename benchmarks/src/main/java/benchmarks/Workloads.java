@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import environments.Checkpoint;
+import environments.Environment;
+import environments.SimParameters;
+
+/**
+ * handles creation of the seeded environments every benchmark runs on, so that
+ * each run of a benchmark measures exactly the same work. An environment is
+ * grown once per trial and saved to a checkpoint, and each iteration starts
+ * from a fresh copy loaded from it.
+ * 
+ * @author danpr
+ *
+ */
+public final class Workloads {
+	public static final long SEED = 42; // seed of every benchmark environment
+	public static final float SUNLIGHT = SimParameters.DEFAULT.getSunlight(); // energy per tile per time-step
+	public static final int SPARSE_STEPS = 600; // time-steps grown before measuring a sparse environment
+	public static final int DENSE_STEPS = 2000; // time-steps grown before measuring a dense environment
+
+	/**
+	 * workloads are only created through the static methods.
+	 */
+	private Workloads() {
+	}
+
+	/**
+	 * grow a square environment from the benchmark seed, and save it to a
+	 * temporary checkpoint.
+	 * 
+	 * @param size    width and height of the environment (tiles)
+	 * @param density "sparse" or "dense"
+	 * @return checkpoint to load a copy of the environment from
+	 */
+	public static Path grow(int size, String density) {
+		Environment environment = new Environment(size, size, 3, 20, 2, SEED);
+		Path checkpoint;
+
+		switch (density) {
+		case "sparse":
+			environment.simulateSingle(SPARSE_STEPS);
+			break;
+		case "dense":
+			environment.simulateSingle(DENSE_STEPS);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown density " + density);
+		}
+		try {
+			checkpoint = Files.createTempFile("benchmark-" + size + "-" + density, ".evos");
+			checkpoint.toFile().deleteOnExit();
+			Checkpoint.save(environment, checkpoint);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * load a fresh copy of a grown environment.
+	 * 
+	 * @param checkpoint
+	 * @return
+	 */
+	public static Environment load(Path checkpoint) {
+		try {
+			return Checkpoint.load(checkpoint);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
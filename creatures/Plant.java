@@ -1,36 +1,35 @@
 package creatures;
 
-import java.text.DecimalFormat;
-import java.util.Random;
-
-import environments.Environment;
 import environments.EnvironmentTile;
-import frontEnd.AppRoot;
-import genetics.Gene;
+import environments.EventBuffer;
+import environments.SimParameters;
+import environments.SimRandom;
+import environments.StepContext;
 import genetics.GeneType;
 import genetics.Genome;
-import javafx.scene.paint.Color;
 
 /**
- * Handles processes specific to plants for simulation and graphical output.
+ * Handles processes specific to plants for simulation. Each process runs as a
+ * single pass over the columns of a PlantStore.
  * 
  * @author danpr
  *
  */
 public class Plant extends Creature {
-	protected static final Color PLANT_COLOR = Color.GREEN; // visual identifier of creature type
-	protected static final float SUSTAIN_EFFICIENCY = 0.2F; // multiplier for cost of surviving the passing of time
-	protected static final float CLONE_EFFICIENCY = 20F; // multiplier for cost of creating offspring
-	protected static final float PHOTO_EFFICIENCY = 0.2F; // fraction of light capturable during photosynthesis
-	protected static final float GROW_EFFICIENCY = 0.005F; // multiplier for cost of growing
-	protected static final float SEED_EFFICIENCY = 2F; // multiplier for cost of spreading seeds
+	public static final String PLANT_COLOR = "green"; // visual identifier of creature type
 	protected static final int MAX_STARTING_SIZE = 5;
 	protected static final int MAX_SEED_RANGE = 10;
 	protected static final int MIN_AGE = 100;
 	protected static final int MAX_AGE = 1000;
 
 	/**
-	 * Generate a new plant.
+	 * plants are described statically and never instantiated.
+	 */
+	private Plant() {
+	}
+
+	/**
+	 * Generate the genome of a new plant.
 	 * 
 	 * @param mutationRate       number of mutations to occur during reproduction
 	 * @param reproduceBehaviour proportion of energy to retain during reproduction
@@ -39,163 +38,155 @@ public class Plant extends Creature {
 	 * @param sizeCap            maximum size to grow to
 	 * @param startingSize       initial size of offspring
 	 * @param seedRange          maximum distribution range of offspring
-	 * @param root               program-wide action reference
+	 * @return
 	 */
-	public Plant(int mutationRate, float reproduceBehaviour, float growBehaviour, int ageCap, int sizeCap,
-			int startingSize, int seedRange, AppRoot root) {
-		super(mutationRate, reproduceBehaviour, growBehaviour, ageCap, startingSize, root);
-
-		GENOME.addGene(GeneType.SIZE_CAP, new Gene(1, MAX_SIZE, 1, sizeCap));
-		GENOME.addGene(GeneType.STARTING_SIZE, new Gene(1, MAX_STARTING_SIZE, 1, startingSize));
-		GENOME.addGene(GeneType.SEED_RANGE, new Gene(1, MAX_SEED_RANGE, 1, seedRange));
-	}
+	public static long plantGenome(int mutationRate, float reproduceBehaviour, float growBehaviour, int ageCap,
+			int sizeCap, int startingSize, int seedRange) {
+		long genome = creatureGenome(mutationRate, reproduceBehaviour, growBehaviour, ageCap);
 
-	/**
-	 * Generate a genetic clone of the plant with the given genome.
-	 * 
-	 * @param parentGenome genome to clone
-	 * @param root         program-wide action reference
-	 */
-	public Plant(Genome parentGenome, AppRoot root) {
-		super(parentGenome, (int) parentGenome.getGeneValue(GeneType.STARTING_SIZE), root);
+		genome = Genome.setGeneValue(genome, GeneType.SIZE_CAP, sizeCap);
+		genome = Genome.setGeneValue(genome, GeneType.STARTING_SIZE, startingSize);
+		genome = Genome.setGeneValue(genome, GeneType.SEED_RANGE, seedRange);
+		return genome;
 	}
 
 	/**
-	 * Generate a genetically random plant that is theoretically capable of
-	 * survival.
+	 * Generate the genome of a genetically random plant that is theoretically
+	 * capable of survival.
 	 * 
-	 * @param root program-wide action reference
-	 * @return generated plant
+	 * @param rng        source of randomness
+	 * @param parameters constants of the simulation the plant will live in
+	 * @return generated genome
 	 */
-	public static Plant randomPlant(AppRoot root) {
-		Random rng = new Random();
-		DecimalFormat df = new DecimalFormat("#.#");
-		Plant plant;
+	public static long randomPlant(SimRandom rng, SimParameters parameters) {
+		long genome;
 		int tries = 0;
 
 		do {
-			plant = new Plant(rng.nextInt(MAX_MUTATION) + 1, // mutation rate
-					Float.parseFloat(df.format(rng.nextFloat())), // reproduce behaviour
-					Float.parseFloat(df.format(rng.nextFloat())), // grow behaviour
+			genome = plantGenome(rng.nextInt(MAX_MUTATION) + 1, // mutation rate
+					rng.nextFloat(), // reproduce behaviour (rounded to the nearest gene step)
+					rng.nextFloat(), // grow behaviour (^)
 					(rng.nextInt(10) + 1) * MIN_AGE, // age cap
 					rng.nextInt(MAX_SIZE) + 1, // size cap
 					rng.nextInt(MAX_STARTING_SIZE) + 1, // starting size
-					rng.nextInt(MAX_SEED_RANGE) + 1, // seed spreading range
-					root);
+					rng.nextInt(MAX_SEED_RANGE) + 1); // seed spreading range
 			tries++;
-		} while (plant.isGeneticDeadEnd() && tries < 100);
-		return plant;
+		} while (isGeneticDeadEnd(genome, parameters) && tries < 100);
+		return genome;
 	}
 
 	/**
-	 * Generate a viable example of a plant.
+	 * Generate the genome of a viable example of a plant.
 	 * 
-	 * @param root program-wide action reference
-	 * @return generated plant
+	 * @return generated genome
 	 */
-	public static Plant demoPlant(AppRoot root) {
-		return new Plant(3, // mutation rate
+	public static long demoPlant() {
+		return plantGenome(3, // mutation rate
 				0.1F, // reproduce behaviour
 				0.1F, // grow behaviour
 				500, // age cap
 				50, // size cap
 				1, // starting size
-				5, // seed spreading range
-				root);
+				5); // seed spreading range
 	}
 
 	/**
-	 * generate a string containing the plant data.
+	 * generate a string containing the data of the plant at the given index.
 	 * 
+	 * @param plants
+	 * @param i
 	 * @return
 	 */
-	@Override
-	public String toString() {
+	public static String toString(PlantStore plants, int i) {
 		String result = "Plant - ";
-		result += "energy: " + energy + ", size: " + size + "age: " + age + ", Genome";
-		result += GENOME.toString();
+		result += "energy: " + plants.energy[i] + ", size: " + plants.size[i] + "age: " + plants.age[i] + ", Genome";
+		result += Genome.toString(plants.getGenome(i));
 		return result;
 	}
 
 	/**
-	 * generate and mutate an offspring to this plant.
-	 * 
-	 * @return a genetically similar offspring
-	 */
-	public Plant reproduce() {
-		Plant child = new Plant(GENOME, ROOT);
-		child.GENOME.mutate();
-		this.energy -= reproduceCost();
-		return child;
-	}
-
-	/**
-	 * creature colour getter.
-	 */
-	public Color getCreatureColor() {
-		return PLANT_COLOR;
-	}
-
-	/**
-	 * absorbs a portion of given light as energy.
+	 * allow each plant in order of size to absorb a portion of the available light
+	 * as energy, with smaller plants having access to less because of the larger
+	 * plants absorbing some first.
 	 * 
+	 * @param plants          plants sharing the light
 	 * @param availableEnergy total available light
+	 * @param parameters      constants of the simulation
 	 * @return un-absorbed light
 	 */
-	public float photosynthesise(float availableEnergy) {
-		float absorbed = availableEnergy * PHOTO_EFFICIENCY * (size + MAX_SIZE) / (MAX_SIZE + MAX_SIZE);
-		energy += absorbed;
+	public static float photosynthesise(PlantStore plants, float availableEnergy, SimParameters parameters) {
+		float efficiency = parameters.getPhotoEfficiency();
+		float absorbed;
 
-		if (energy > size * ENERGY_PER_SIZE) {
-			energy = size * ENERGY_PER_SIZE;
+		plants.sortNewborns();
+		for (int i = 0; i < plants.count; i++) {
+			absorbed = availableEnergy * efficiency * (plants.size[i] + MAX_SIZE) / (MAX_SIZE + MAX_SIZE);
+			plants.energy[i] += absorbed;
+
+			if (plants.energy[i] > maxEnergy(plants.size[i])) {
+				plants.energy[i] = maxEnergy(plants.size[i]);
+			}
+			availableEnergy -= absorbed;
 		}
-		return availableEnergy - absorbed;
+		return availableEnergy;
 	}
 
 	/**
-	 * calculate the total energy cost for this plant to reproduce.
+	 * calculate the total energy cost for a plant with the given genome to
+	 * reproduce.
 	 * 
+	 * @param genome
+	 * @param parameters constants of the simulation
 	 * @return
 	 */
-	public float reproduceCost() {
-		float singleCloneCost = GENOME.getGeneValue(GeneType.STARTING_SIZE) * ENERGY_PER_SIZE * CLONE_EFFICIENCY;
-		float singleSpreadCost = (GENOME.getGeneValue(GeneType.STARTING_SIZE) * GENOME.getGeneValue(GeneType.SEED_RANGE)
-				* SEED_EFFICIENCY) / MAX_SEED_RANGE;
+	public static float reproduceCost(long genome, SimParameters parameters) {
+		float startingSize = Genome.getGeneValue(genome, GeneType.STARTING_SIZE);
+		float singleCloneCost = startingSize * ENERGY_PER_SIZE * parameters.getCloneEfficiency();
+		float singleSpreadCost = (startingSize * Genome.getGeneValue(genome, GeneType.SEED_RANGE)
+				* parameters.getSeedEfficiency()) / MAX_SEED_RANGE;
 		return (singleCloneCost + singleSpreadCost);
 	}
 
 	/**
-	 * calculates the total energy cost for this plant to grow.
+	 * calculates the total energy cost for a plant of the given size to grow.
 	 * 
+	 * @param size
+	 * @param parameters constants of the simulation
 	 * @return
 	 */
-	public float growCost() {
-		return (size / MAX_SIZE) * ENERGY_PER_SIZE * GROW_EFFICIENCY;
+	public static float growCost(int size, SimParameters parameters) {
+		return (size / MAX_SIZE) * ENERGY_PER_SIZE * parameters.getGrowEfficiency();
 	}
 
 	/**
-	 * calculates the total energy cost for this plant to survive a single
-	 * time-step.
+	 * calculates the total energy cost for a plant to survive a single time-step.
 	 * 
+	 * @param size
+	 * @param genome
+	 * @param parameters constants of the simulation
 	 * @return
 	 */
-	public float sustainCost() {
-		return size * SUSTAIN_EFFICIENCY * (1 + (GENOME.getGeneValue(GeneType.AGE_CAP) / MAX_AGE));
+	public static float sustainCost(int size, long genome, SimParameters parameters) {
+		return size * parameters.getSustainEfficiency() * (1 + (Genome.getGeneValue(genome, GeneType.AGE_CAP) / MAX_AGE));
 	}
 
 	/**
-	 * calculates if this plants' genes make it unable to eventually reproduce.
+	 * calculates if the given genes make a plant unable to eventually reproduce.
 	 * 
+	 * @param genome
+	 * @param parameters constants of the simulation
 	 * @return true if dead-end, false otherwise
 	 */
-	public boolean isGeneticDeadEnd() {
-		if (growCost() + sustainCost() >= GENOME.getGeneValue(GeneType.STARTING_SIZE) * ENERGY_PER_SIZE
-				* (1 - GENOME.getGeneValue(GeneType.GROW_BEHAVIOUR))) {
+	public static boolean isGeneticDeadEnd(long genome, SimParameters parameters) {
+		int startingSize = (int) Genome.getGeneValue(genome, GeneType.STARTING_SIZE); // size of a new plant
+
+		if (growCost(startingSize, parameters) + sustainCost(startingSize, genome, parameters) >= startingSize * ENERGY_PER_SIZE
+				* (1 - Genome.getGeneValue(genome, GeneType.GROW_BEHAVIOUR))) {
 			return true;
 		} // Plant will never grow from seeding size
 
-		if (reproduceCost() + sustainCost() >= GENOME.getGeneValue(GeneType.SIZE_CAP) * ENERGY_PER_SIZE
-				* (1 - GENOME.getGeneValue(GeneType.REPRODUCE_BEHAVIOUR))) {
+		if (reproduceCost(genome, parameters) + sustainCost(startingSize, genome, parameters) >= Genome.getGeneValue(genome,
+				GeneType.SIZE_CAP) * ENERGY_PER_SIZE * (1 - Genome.getGeneValue(genome, GeneType.REPRODUCE_BEHAVIOUR))) {
 			return true;
 		} // Plant will never reproduce from mature size
 
@@ -203,67 +194,75 @@ public class Plant extends Creature {
 	}
 
 	/**
-	 * subtracts the energy required to survive 1 time-step and calculates whether
-	 * the plant survives.
-	 * 
-	 * @return true if survived, false if died
-	 */
-	public boolean survive() {
-		sustain();
-		if (energy <= 0 || age > GENOME.getGeneValue(GeneType.AGE_CAP)) {
-			return false;
-		} else {
-			return true;
-		}
-	}
-
-	/**
-	 * calculates if this plant should grow this time-step according to its genetic
+	 * calculates if a plant should grow this time-step according to its genetic
 	 * behaviour.
 	 * 
+	 * @param energy
+	 * @param size
+	 * @param genome
+	 * @param parameters constants of the simulation
 	 * @return true if should grow, false otherwise.
 	 */
-	public boolean shouldGrow() {
-		return (energy - growCost()) / (size * ENERGY_PER_SIZE) >= GENOME.getGeneValue(GeneType.GROW_BEHAVIOUR);
+	public static boolean shouldGrow(float energy, int size, long genome, SimParameters parameters) {
+		return (energy - growCost(size, parameters)) / maxEnergy(size) >= Genome.getGeneValue(genome, GeneType.GROW_BEHAVIOUR);
 	}
 
 	/**
-	 * calculates if this plant should reproduce this time-step according to its
+	 * calculates if a plant should reproduce this time-step according to its
 	 * genetic behaviour.
 	 * 
+	 * @param energy
+	 * @param size
+	 * @param genome
+	 * @param parameters constants of the simulation
 	 * @return true if should reproduce, false otherwise.
 	 */
-	public boolean shouldReproduce() {
-		return (energy - reproduceCost()) / (size * ENERGY_PER_SIZE) >= GENOME
-				.getGeneValue(GeneType.REPRODUCE_BEHAVIOUR);
+	public static boolean shouldReproduce(float energy, int size, long genome, SimParameters parameters) {
+		return (energy - reproduceCost(genome, parameters)) / maxEnergy(size) >= Genome.getGeneValue(genome,
+				GeneType.REPRODUCE_BEHAVIOUR);
 	}
 
 	/**
-	 * decide the actions of this plant for a single timestep.
+	 * decide the actions of each plant on a tile for a single timestep: each plant
+	 * subtracts the energy required to survive, then dies, grows, or reproduces.
+	 * Plants that die are only marked until every plant has had its turn, then
+	 * removed together, so a die-off costs a single pass over the tile.
+	 * 
+	 * @param plants  plants on the tile
+	 * @param context handler of births and deaths for the tile (and the constants
+	 *                of the simulation)
+	 * @param tile
 	 */
-	public void chooseBehaviour(Environment environment, EnvironmentTile tile) {
-		if (!survive()) {
-			tile.removeCreature(this); // die
-		} else if (size < GENOME.getGeneValue(GeneType.SIZE_CAP) && shouldGrow()) {
-			grow(); // or grow
-		} else if (shouldReproduce()) {
-			environment.scatter(tile, (int) GENOME.getGeneValue(GeneType.SEED_RANGE), reproduce()); // or reproduce
-		}
-	}
+	public static void chooseBehaviour(PlantStore plants, StepContext context, EnvironmentTile tile) {
+		SimParameters parameters = context.getParameters();
+		long genome;
+		long childGenome;
+		int grown;
+		int i = 0;
 
-	/**
-	 * subtract the energy required for this plant to survive a single time-step.
-	 */
-	public void sustain() {
-		energy -= sustainCost();
-		age++;
-	}
+		while (i < plants.count) {
+			genome = plants.getGenome(i);
 
-	/**
-	 * grow by 1 and subtract the energy cost of growth.
-	 */
-	public void grow() {
-		size += 1;
-		energy -= growCost();
+			plants.energy[i] -= sustainCost(plants.size[i], genome, parameters); // sustain
+			plants.age[i]++;
+
+			if (plants.energy[i] <= 0 || plants.age[i] > Genome.getGeneValue(genome, GeneType.AGE_CAP)) {
+				context.death(tile, i, plants.energy[i] <= 0 ? EventBuffer.STARVED : EventBuffer.OLD_AGE); // die
+				plants.markDead(i); // (removed once every plant has had its turn)
+			} else if (plants.size[i] < Genome.getGeneValue(genome, GeneType.SIZE_CAP)
+					&& shouldGrow(plants.energy[i], plants.size[i], genome, parameters)) {
+				context.growth(tile, i); // or grow
+				grown = plants.growPlant(i); // (swapping with a plant that has had its turn)
+				plants.energy[grown] -= growCost(plants.size[grown], parameters);
+			} else if (shouldReproduce(plants.energy[i], plants.size[i], genome, parameters)) {
+				childGenome = Genome.mutate(genome, context.getRandom()); // or reproduce
+				plants.energy[i] -= reproduceCost(genome, parameters);
+				context.birth(tile, (int) Genome.getGeneValue(genome, GeneType.SEED_RANGE), childGenome,
+						(int) Genome.getGeneValue(genome, GeneType.STARTING_SIZE), plants.lineage[i],
+						plants.species[i]);
+			}
+			i++;
+		}
+		plants.removeDead();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,454 @@
+package creatures;
+
+import java.util.Arrays;
+
+import genetics.GenomeTable;
+
+/**
+ * handles storage of the plants on a single tile as primitive columns, indexed
+ * from 0 to getCount() - 1. Plants are kept in descending order of size
+ * (largest first), except for plants added since the last call to
+ * sortNewborns(), which wait at the end. Genome ids, lineages and species are
+ * not released by the store, as that may need to wait until the end of a
+ * time-step (see StepContext).
+ * 
+ * @author danpr
+ *
+ */
+public class PlantStore {
+	private static final int INITIAL_CAPACITY = 4;
+	private static final long DEAD = -1; // id of a plant marked as dead but not yet removed
+
+	private final GenomeTable GENOMES; // table the genome ids of this store refer to
+
+	float[] energy = new float[INITIAL_CAPACITY]; // plant data columns
+	int[] size = new int[INITIAL_CAPACITY]; // ^
+	int[] age = new int[INITIAL_CAPACITY]; // ^
+	int[] genome = new int[INITIAL_CAPACITY]; // ^ (id in GENOMES)
+	long[] id = new long[INITIAL_CAPACITY]; // ^ (unique in an environment)
+	int[] lineage = new int[INITIAL_CAPACITY]; // ^ (node in the environment's Phylogeny)
+	int[] species = new int[INITIAL_CAPACITY]; // ^ (slot in the environment's Speciation)
+	int count = 0; // number of plants stored
+	int sorted = 0; // number of plants at the start of the columns in order of size
+	private int version = 0; // number of times the plants or their sizes have changed
+	private int nDead = 0; // number of plants marked as dead but not yet removed
+
+	/**
+	 * initialise as an empty store.
+	 * 
+	 * @param genomes table the genome ids of this store refer to
+	 */
+	public PlantStore(GenomeTable genomes) {
+		this(genomes, 0);
+	}
+
+	/**
+	 * initialise as an empty store whose version starts from the given number,
+	 * so that it can replace a store without repeating any of its versions.
+	 * 
+	 * @param genomes table the genome ids of this store refer to
+	 * @param version version to start from
+	 */
+	public PlantStore(GenomeTable genomes, int version) {
+		this.GENOMES = genomes;
+		this.version = version;
+	}
+
+	/**
+	 * create a copy of this store that is unaffected by later changes to it, with
+	 * the genomes of its plants added to the given table.
+	 * 
+	 * @param genomes table to store the genomes of the copied plants in
+	 * @return
+	 */
+	public PlantStore copy(GenomeTable genomes) {
+		PlantStore copy = new PlantStore(genomes);
+
+		copy.energy = Arrays.copyOf(energy, count);
+		copy.size = Arrays.copyOf(size, count);
+		copy.age = Arrays.copyOf(age, count);
+		copy.id = Arrays.copyOf(id, count);
+		copy.lineage = Arrays.copyOf(lineage, count);
+		copy.species = Arrays.copyOf(species, count);
+		copy.genome = new int[count];
+		for (int i = 0; i < count; i++) {
+			copy.genome[i] = genomes.add(getGenome(i));
+		}
+		copy.count = count;
+		copy.sorted = sorted;
+		copy.version = version;
+		return copy;
+	}
+
+	/**
+	 * add a newly created plant to the end of the columns.
+	 * 
+	 * @param plantId  unique id of the plant
+	 * @param genomeId id of the plant's genome
+	 * @param lineage  node of the plant in the environment's Phylogeny
+	 * @param species  slot of the plant's species in the environment's Speciation
+	 * @param size     initial size of the plant
+	 * @return index of the plant
+	 */
+	public int add(long plantId, int genomeId, int lineage, int species, int size) {
+		if (count == energy.length) {
+			expand();
+		}
+		this.energy[count] = Creature.startingEnergy(size);
+		this.size[count] = size;
+		this.age[count] = 0;
+		this.genome[count] = genomeId;
+		this.id[count] = plantId;
+		this.lineage[count] = lineage;
+		this.species[count] = species;
+		count++;
+		version++;
+		return count - 1;
+	}
+
+	/**
+	 * add a plant that has already lived, such as one restored from a saved
+	 * environment, to the end of the columns.
+	 * 
+	 * @param plantId  unique id of the plant
+	 * @param genomeId id of the plant's genome
+	 * @param lineage  node of the plant in the environment's Phylogeny
+	 * @param species  slot of the plant's species in the environment's Speciation
+	 * @param size     current size of the plant
+	 * @param energy   current energy of the plant
+	 * @param age      current age of the plant
+	 * @return index of the plant
+	 */
+	public int add(long plantId, int genomeId, int lineage, int species, int size, float energy, int age) {
+		int i = add(plantId, genomeId, lineage, species, size);
+
+		this.energy[i] = energy;
+		this.age[i] = age;
+		return i;
+	}
+
+	/**
+	 * mark the plant at the given index as dead, leaving it in place (and in
+	 * order of size) until removeDead() is called, so that no other plant moves.
+	 * 
+	 * @param i
+	 */
+	void markDead(int i) {
+		id[i] = DEAD;
+		nDead++;
+	}
+
+	/**
+	 * remove every plant marked as dead in a single pass, moving the others back
+	 * to keep them in order.
+	 */
+	void removeDead() {
+		int kept = 0;
+		int keptSorted = 0;
+
+		if (nDead == 0) {
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			if (id[i] != DEAD) {
+				if (kept != i) {
+					move(i, kept);
+				}
+				if (i < sorted) {
+					keptSorted++;
+				}
+				kept++;
+			}
+		}
+		count = kept;
+		sorted = keptSorted;
+		nDead = 0;
+		version++;
+	}
+
+	/**
+	 * empty the store for reuse, keeping its columns, with its version starting
+	 * again from the given number (see PlantStore(GenomeTable, int)).
+	 * 
+	 * @param version version to start from
+	 */
+	public void reset(int version) {
+		count = 0;
+		sorted = 0;
+		nDead = 0;
+		this.version = version;
+	}
+
+	/**
+	 * shrink every column of this empty store back to its initial capacity, so a
+	 * store kept for later reuse holds no more memory than a new one.
+	 */
+	public void trim() {
+		if (energy.length > INITIAL_CAPACITY) {
+			energy = new float[INITIAL_CAPACITY];
+			size = new int[INITIAL_CAPACITY];
+			age = new int[INITIAL_CAPACITY];
+			genome = new int[INITIAL_CAPACITY];
+			id = new long[INITIAL_CAPACITY];
+			lineage = new int[INITIAL_CAPACITY];
+			species = new int[INITIAL_CAPACITY];
+		}
+	}
+
+	/**
+	 * remove every plant.
+	 */
+	public void clear() {
+		count = 0;
+		sorted = 0;
+		nDead = 0;
+		version++;
+	}
+
+	/**
+	 * increase the size of the plant at the given index by one. A plant in order
+	 * swaps with the first living plant of its old size, which keeps the order
+	 * without moving any other plant.
+	 * 
+	 * @param i
+	 * @return new index of the plant
+	 */
+	int growPlant(int i) {
+		int first = i;
+
+		if (i < sorted) {
+			while (first > 0 && size[first - 1] == size[i]) {
+				first--;
+			}
+			while (id[first] == DEAD) {
+				first++;
+			}
+			swap(i, first);
+		}
+		size[first]++;
+		version++;
+		return first;
+	}
+
+	/**
+	 * find the index of the plant with the given id.
+	 * 
+	 * @param plantId
+	 * @return index, or -1 if not stored
+	 */
+	public int indexOf(long plantId) {
+		for (int i = 0; i < count; i++) {
+			if (id[i] == plantId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * move plants added since the last call into order, each in front of the
+	 * plants already of its size. Newborns are small, so each only passes the few
+	 * smallest plants.
+	 */
+	void sortNewborns() {
+		int j;
+
+		if (sorted == count) {
+			return;
+		}
+		for (int i = sorted; i < count; i++) {
+			j = i;
+			while (j > 0 && size[j - 1] <= size[j]) {
+				swap(j - 1, j);
+				j--;
+			}
+		}
+		sorted = count;
+		version++;
+	}
+
+	/**
+	 * copy the plant at one index over the plant at another.
+	 * 
+	 * @param from
+	 * @param to
+	 */
+	private void move(int from, int to) {
+		energy[to] = energy[from];
+		size[to] = size[from];
+		age[to] = age[from];
+		genome[to] = genome[from];
+		id[to] = id[from];
+		lineage[to] = lineage[from];
+		species[to] = species[from];
+	}
+
+	/**
+	 * swap the plants at the given indices.
+	 * 
+	 * @param a
+	 * @param b
+	 */
+	private void swap(int a, int b) {
+		float tempEnergy = energy[a];
+		int tempSize = size[a];
+		int tempAge = age[a];
+		int tempGenome = genome[a];
+		long tempId = id[a];
+		int tempLineage = lineage[a];
+		int tempSpecies = species[a];
+
+		energy[a] = energy[b];
+		size[a] = size[b];
+		age[a] = age[b];
+		genome[a] = genome[b];
+		id[a] = id[b];
+		lineage[a] = lineage[b];
+		species[a] = species[b];
+		energy[b] = tempEnergy;
+		size[b] = tempSize;
+		age[b] = tempAge;
+		genome[b] = tempGenome;
+		id[b] = tempId;
+		lineage[b] = tempLineage;
+		species[b] = tempSpecies;
+	}
+
+	/**
+	 * enlarge every column.
+	 */
+	private void expand() {
+		int capacity = Math.max(energy.length * 2, INITIAL_CAPACITY);
+
+		energy = Arrays.copyOf(energy, capacity);
+		size = Arrays.copyOf(size, capacity);
+		age = Arrays.copyOf(age, capacity);
+		genome = Arrays.copyOf(genome, capacity);
+		id = Arrays.copyOf(id, capacity);
+		lineage = Arrays.copyOf(lineage, capacity);
+		species = Arrays.copyOf(species, capacity);
+	}
+
+	/**
+	 * count getter.
+	 * 
+	 * @return number of plants stored
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * get the number of plants at the start of the columns that are in order of
+	 * size (the rest were added since the store was last put in order).
+	 * 
+	 * @return
+	 */
+	public int getSorted() {
+		return sorted;
+	}
+
+	/**
+	 * set the number of plants at the start of the columns that are in order of
+	 * size, when restoring plants that were saved in order.
+	 * 
+	 * @param sorted
+	 */
+	public void restoreSorted(int sorted) {
+		if (sorted < 0 || sorted > count) {
+			throw new RuntimeException("plant store order error");
+		}
+		this.sorted = sorted;
+	}
+
+	/**
+	 * version getter. The version changes whenever a plant is added or removed,
+	 * or changes size or position in the store, so an unchanged version means
+	 * the plants would be drawn the same.
+	 * 
+	 * @return
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * energy getter by index.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public float getEnergy(int i) {
+		return energy[i];
+	}
+
+	/**
+	 * size getter by index.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int getSize(int i) {
+		return size[i];
+	}
+
+	/**
+	 * age getter by index.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int getAge(int i) {
+		return age[i];
+	}
+
+	/**
+	 * id getter by index.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public long getId(int i) {
+		return id[i];
+	}
+
+	/**
+	 * lineage getter by index (node in the environment's Phylogeny).
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int getLineage(int i) {
+		return lineage[i];
+	}
+
+	/**
+	 * species getter by index (slot in the environment's Speciation).
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int getSpecies(int i) {
+		return species[i];
+	}
+
+	/**
+	 * genome id getter by index.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public int getGenomeId(int i) {
+		return genome[i];
+	}
+
+	/**
+	 * genome getter by index (see Genome).
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public long getGenome(int i) {
+		return GENOMES.get(genome[i]);
+	}
+}
@@ -0,0 +1,334 @@
+package environments;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import creatures.Creature;
+import creatures.PlantStore;
+import genetics.Genome;
+
+/**
+ * handles saving the complete state of an environment to a binary file, and
+ * restoring an environment from one so that it carries on exactly as the saved
+ * environment would have. Files are read and written through memory-mapped
+ * windows, so even very large environments are saved without copying through
+ * a stream.
+ * 
+ * The file holds a header (see HEADER_BYTES), then a record for each node of
+ * the phylogeny (see NODE_BYTES) and each living species (see SPECIES_BYTES),
+ * then each tile holding plants, in column order, as its position, its number
+ * of plants, the number of those in order of size, and a record for each plant
+ * (see PLANT_BYTES). Empty tiles are left out, so the size of the file depends
+ * on the plants rather than the size of the grid.
+ * 
+ * @author danpr
+ *
+ */
+public final class Checkpoint {
+	private static final int MAGIC = 0x45564F53; // marks a checkpoint file ("EVOS")
+	private static final int FORMAT_VERSION = 5; // changed whenever the layout of the file changes
+	private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 8 + 6 * 4 + 4 + 8 + 1 + 4 + 4 + 4 + 8 + 4
+			+ 4; // (see save())
+	private static final int NODE_BYTES = 4 + 8 + 4 + 4 + 4 + 1; // node, plant id, parent, birth, generation, living
+	private static final int SPECIES_BYTES = 4 + 8 + 8 + 4; // slot, id, leader genome, emergence time
+	private static final int TILE_BYTES = 4 + 4 + 4 + 4; // x, y, plant count, number in order
+	private static final int PLANT_BYTES = 8 + 8 + 4 + 4 + 4 + 4 + 4; // id, genome, lineage, species, energy, size, age
+	private static final long WINDOW_BYTES = 64L << 20; // size of each memory-mapped window of the file
+
+	private final FileChannel CHANNEL; // file being read or written
+	private final FileChannel.MapMode MODE; // whether mapping for reading or writing
+	private final long LENGTH; // length of the file
+	private MappedByteBuffer window; // currently mapped part of the file
+	private long windowStart = 0; // position in the file of the start of the window
+
+	/**
+	 * checkpoints are only created while saving or loading.
+	 * 
+	 * @param channel
+	 * @param mode
+	 * @param length
+	 */
+	private Checkpoint(FileChannel channel, FileChannel.MapMode mode, long length) {
+		this.CHANNEL = channel;
+		this.MODE = mode;
+		this.LENGTH = length;
+	}
+
+	/**
+	 * save the state of the given environment. Must not be called while the
+	 * environment is simulating a time-step.
+	 * 
+	 * @param environment
+	 * @param path        file to write (replaced if it exists)
+	 * @throws IOException
+	 */
+	public static void save(Environment environment, Path path) throws IOException {
+		Phylogeny lineages = environment.getPhylogeny();
+		Speciation species = environment.getSpeciation();
+		long length = HEADER_BYTES + (long) lineages.size() * NODE_BYTES + (long) species.getCount() * SPECIES_BYTES;
+		int nTiles = 0;
+		PlantStore plants;
+		Checkpoint output;
+
+		for (int i = 0; i < environment.getWidth(); i++) {
+			for (int j = environment.nextActive(i, 0); j >= 0; j = environment.nextActive(i, j + 1)) {
+				if (environment.getPlants(i, j).getCount() > 0) {
+					length += TILE_BYTES + (long) environment.getPlants(i, j).getCount() * PLANT_BYTES;
+					nTiles++;
+				}
+			}
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.setLength(length);
+			output = new Checkpoint(file.getChannel(), FileChannel.MapMode.READ_WRITE, length);
+
+			output.reserve(HEADER_BYTES);
+			output.window.putInt(MAGIC);
+			output.window.putInt(FORMAT_VERSION);
+			output.window.putInt(environment.getWidth());
+			output.window.putInt(environment.getHeight());
+			output.window.putLong(environment.getSeed());
+			output.window.putLong(environment.getRandomState());
+			for (float value : environment.getParameters().getValues()) {
+				output.window.putFloat(value);
+			}
+			output.window.putInt(environment.getSimTime());
+			output.window.putLong(environment.getNextPlantId());
+			output.window.put((byte) (environment.isPeriodicCull() ? 1 : 0));
+			output.window.putInt(environment.getCullPeriod());
+			output.window.putInt(environment.getCullRadius());
+			output.window.putInt(lineages.size());
+			output.window.putLong(species.getNextId());
+			output.window.putInt(species.getCount());
+			output.window.putInt(nTiles);
+
+			for (int i = 0; i < lineages.getLimit(); i++) {
+				if (lineages.isUsed(i)) {
+					output.reserve(NODE_BYTES);
+					output.window.putInt(i);
+					output.window.putLong(lineages.getPlantId(i));
+					output.window.putInt(lineages.getParent(i));
+					output.window.putInt(lineages.getBirthTime(i));
+					output.window.putInt(lineages.getGeneration(i));
+					output.window.put((byte) (lineages.isLiving(i) ? 1 : 0));
+				}
+			}
+			for (int i = 0; i < species.getLimit(); i++) {
+				if (species.isUsed(i)) {
+					output.reserve(SPECIES_BYTES);
+					output.window.putInt(i);
+					output.window.putLong(species.getId(i));
+					output.window.putLong(species.getLeader(i));
+					output.window.putInt(species.getEmergeTime(i));
+				}
+			}
+
+			for (int i = 0; i < environment.getWidth(); i++) {
+				for (int j = environment.nextActive(i, 0); j >= 0; j = environment.nextActive(i, j + 1)) {
+					plants = environment.getPlants(i, j);
+					if (plants.getCount() == 0) {
+						continue;
+					}
+					output.reserve(TILE_BYTES + (long) plants.getCount() * PLANT_BYTES);
+					output.window.putInt(i);
+					output.window.putInt(j);
+					output.window.putInt(plants.getCount());
+					output.window.putInt(plants.getSorted());
+					for (int k = 0; k < plants.getCount(); k++) {
+						output.window.putLong(plants.getId(k));
+						output.window.putLong(plants.getGenome(k));
+						output.window.putInt(plants.getLineage(k));
+						output.window.putInt(plants.getSpecies(k));
+						output.window.putFloat(plants.getEnergy(k));
+						output.window.putInt(plants.getSize(k));
+						output.window.putInt(plants.getAge(k));
+					}
+				}
+			}
+			output.window.force();
+		}
+	}
+
+	/**
+	 * restore an environment from a saved state. The restored environment
+	 * simulates on a single thread until told otherwise.
+	 * 
+	 * @param path file to read
+	 * @return
+	 * @throws IOException
+	 */
+	public static Environment load(Path path) throws IOException {
+		Environment environment;
+		Phylogeny lineages;
+		Speciation species;
+		EnvironmentTile tile;
+		Checkpoint input;
+		int width;
+		int height;
+		int nodes;
+		long seed;
+		long rngState;
+		float[] values = new float[SimParameters.NAMES.length];
+		SimParameters parameters;
+		long nextSpeciesId;
+		int nSpecies;
+		int nTiles;
+		int x;
+		int y;
+		int count;
+		int sorted;
+		long plantId;
+		long genome;
+		int lineage;
+		int speciesSlot;
+		float energy;
+		int size;
+		int age;
+		boolean killPeriodic;
+		int killPeriod;
+		int killRadius;
+
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+			input = new Checkpoint(file.getChannel(), FileChannel.MapMode.READ_ONLY, file.length());
+
+			input.reserve(HEADER_BYTES);
+			if (input.window.getInt() != MAGIC) {
+				throw new IOException("not a checkpoint file");
+			}
+			if (input.window.getInt() != FORMAT_VERSION) {
+				throw new IOException("unsupported checkpoint version");
+			}
+			width = input.window.getInt();
+			height = input.window.getInt();
+			if (width < 1 || height < 1) {
+				throw new IOException("checkpoint size error");
+			}
+			seed = input.window.getLong();
+			rngState = input.window.getLong();
+			for (int i = 0; i < values.length; i++) {
+				values[i] = input.window.getFloat();
+				if (!Float.isFinite(values[i])) {
+					throw new IOException("checkpoint parameter error");
+				}
+			}
+			try {
+				parameters = new SimParameters(values[0], values[1], values[2], values[3], values[4], values[5]);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("checkpoint parameter error");
+			}
+			environment = new Environment(width, height, seed, rngState, parameters);
+			environment.restoreTime(input.window.getInt(), input.window.getLong());
+			killPeriodic = input.window.get() != 0;
+			killPeriod = input.window.getInt();
+			killRadius = input.window.getInt();
+			if (killPeriod < 1 || killRadius < 0) {
+				throw new IOException("checkpoint cull error");
+			}
+			environment.setPeriodicCull(killPeriodic, killPeriod, killRadius);
+			nodes = input.window.getInt();
+			nextSpeciesId = input.window.getLong();
+			nSpecies = input.window.getInt();
+			nTiles = input.window.getInt();
+			if (nodes < 0 || nSpecies < 0) {
+				throw new IOException("checkpoint phylogeny size error");
+			}
+			if (nTiles < 0) {
+				throw new IOException("checkpoint tile count error");
+			}
+
+			lineages = environment.getPhylogeny();
+			try {
+				for (int i = 0; i < nodes; i++) {
+					input.reserve(NODE_BYTES);
+					lineages.restore(input.window.getInt(), input.window.getLong(), input.window.getInt(),
+							input.window.getInt(), input.window.getInt(), input.window.get() != 0);
+				}
+				lineages.finishRestore();
+			} catch (RuntimeException e) {
+				throw new IOException("checkpoint phylogeny error");
+			}
+
+			species = environment.getSpeciation();
+			try {
+				for (int i = 0; i < nSpecies; i++) {
+					input.reserve(SPECIES_BYTES);
+					species.restore(input.window.getInt(), input.window.getLong(), input.window.getLong(),
+							input.window.getInt());
+				}
+				species.finishRestore(nextSpeciesId);
+			} catch (RuntimeException e) {
+				throw new IOException("checkpoint species error");
+			}
+
+			for (int i = 0; i < nTiles; i++) {
+				input.reserve(TILE_BYTES);
+				x = input.window.getInt();
+				y = input.window.getInt();
+				count = input.window.getInt();
+				sorted = input.window.getInt();
+				if (x < 0 || x >= width || y < 0 || y >= height || count < 1
+						|| environment.getPlants(x, y).getCount() > 0) {
+					throw new IOException("checkpoint tile error");
+				}
+				tile = environment.getTile(x, y);
+				input.reserve((long) count * PLANT_BYTES);
+				for (int k = 0; k < count; k++) {
+					plantId = input.window.getLong();
+					genome = input.window.getLong();
+					lineage = input.window.getInt();
+					speciesSlot = input.window.getInt();
+					energy = input.window.getFloat();
+					size = input.window.getInt();
+					age = input.window.getInt();
+					if (size < 1 || size > Creature.MAX_SIZE) {
+						throw new IOException("checkpoint plant size error");
+					}
+					if (!Genome.isValid(genome)) {
+						throw new IOException("checkpoint plant genome error");
+					}
+					if (!Float.isFinite(energy) || energy < 0 || age < 0) {
+						throw new IOException("checkpoint plant state error");
+					}
+					try {
+						environment.restorePlant(tile, plantId, genome, lineage, speciesSlot, size, energy, age);
+					} catch (RuntimeException e) {
+						throw new IOException("checkpoint plant error");
+					}
+				}
+				try {
+					tile.getPlants().restoreSorted(sorted);
+				} catch (RuntimeException e) {
+					throw new IOException("checkpoint tile order error");
+				}
+			}
+		}
+		return environment;
+	}
+
+	/**
+	 * make sure the given number of bytes from the current position are mapped,
+	 * moving the window forward if not.
+	 * 
+	 * @param bytes
+	 * @throws IOException
+	 */
+	private void reserve(long bytes) throws IOException {
+		long position = windowStart + (window == null ? 0 : window.position());
+
+		if (window != null && window.remaining() >= bytes) {
+			return;
+		}
+		if (position + bytes > LENGTH) {
+			throw new IOException("checkpoint truncated");
+		}
+		if (window != null && MODE == FileChannel.MapMode.READ_WRITE) {
+			window.force();
+		}
+		windowStart = position;
+		window = CHANNEL.map(MODE, position, Math.min(Math.max(WINDOW_BYTES, bytes), LENGTH - position));
+	}
+}
@@ -1,95 +1,101 @@
 package environments;
 
 import java.util.ArrayList;
-import java.util.Random;
-import java.util.Timer;
-import creatures.Creature;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import creatures.Plant;
-import frontEnd.AppRoot;
+import creatures.PlantStore;
 import genetics.GeneType;
-import javafx.application.Platform;
-import javafx.collections.ObservableList;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
-import javafx.geometry.Pos;
-import javafx.scene.chart.BarChart;
-import javafx.scene.chart.CategoryAxis;
-import javafx.scene.chart.Chart;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart.Series;
-import javafx.scene.control.Button;
-import javafx.scene.control.CheckBox;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextField;
-import javafx.scene.chart.XYChart.Data;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
+import genetics.Genome;
+import genetics.GenomeTable;
 
 /**
- * handles controls, statistics and simulation of an environment.
+ * handles the state and simulation of an environment, independent of any
+ * graphical output.
+ * 
+ * The grid of tiles wraps in both dimensions and is stored as square chunks of
+ * tiles, each allocated when a plant first lands in it and released once it
+ * empties, so a large world only costs memory where plants live. Released
+ * chunks are kept in a small pool, with the storage of their plants trimmed
+ * back so the pool's memory is bounded, and reset in place when a chunk is next
+ * needed, so plants spreading into and dying out of areas does not keep the
+ * garbage collector busy.
  * 
  * @author danpr
  *
  */
-public class Environment extends VBox {
-	private static final Timer TIMER = new Timer(); // scheduler for continuous simulation
-
-	private static final float SUNLIGHT = 200; // energy per tile per time-step available to plants
-
-	private static final int HISTORY_LENGTH = 5000; // number of time-steps to record in statistical data
-	private static final int CONTROL_SPACING = 10; // control components spacing (pixels)
-	private static final int MIN_KILL_PERIOD = 1; // min/max number of time-steps between cullings
-	private static final int MAX_KILL_PERIOD = 10000; // ^
-	private static final int MIN_KILL_RADIUS = 0; // min/max radius of area to cull (clears square 2x+1 tall and 2x+1
-													// wide)
-	private static final int MAX_KILL_RADIUS = 10; // ^
-
-	private static final int FRAME_TIME = 1000; // milliseconds between simulation batches when simulating continuously
+public final class Environment {
+	private static final int CHUNK_SIZE = 16; // width and height of each chunk of tiles (divides 64, see TileSet)
+	private static final int MAX_POOLED_CHUNKS = 64; // most released chunks kept for reuse
+
+	private final GenomeTable GENOMES = new GenomeTable(); // genomes of every plant in the environment
+	private final PopulationStats STATS = new PopulationStats(); // statistics of every plant in the environment
+	private final Phylogeny LINEAGES = new Phylogeny(); // ancestry of every plant in the environment
+	private final Speciation SPECIES = new Speciation(); // species of every plant in the environment
+	private final StepMetrics METRICS = new StepMetrics(); // measurements of where the time of each step goes
+	private final SimParameters PARAMETERS; // constants shaping how plants live in the environment
+	private final long SEED; // seed every random process in the environment is derived from
+	private final SimRandom RNG; // source of randomness for the environment
+	private final PlantStore EMPTY = new PlantStore(GENOMES); // plants of every tile without a chunk (never changed)
+
+	private int width; // size of the grid (tiles)
+	private int height; // ^
+	private int chunkRows; // number of chunks in each column of chunks
+	private EnvironmentTile[][] chunks; // tiles of each chunk, column by column (null until allocated)
+	private int[] chunkVersions; // version the tiles of each chunk start from when next allocated
+	private int[] allocated = new int[16]; // index of each allocated chunk
+	private int nAllocated = 0; // number of allocated chunks
+	private EnvironmentTile[][] pool = new EnvironmentTile[MAX_POOLED_CHUNKS][]; // released chunks kept for reuse
+	private int nPooled = 0; // number of chunks in the pool
+	private TileSet active; // tiles that may hold plants (every tile holding plants is in the set)
+	private TileSet changed; // tiles that may have changed since the last snapshot
+	private EnvironmentSnapshot lastSnapshot = null; // most recent snapshot, shared with the next where unchanged
+
+	private boolean killPeriodic = false; // whether periodic culling is enabled
+	private int killPeriod = 1; // number of time-steps between cullings
+	private int killRadius = 0; // radius of area to cull (clears square 2x+1 tall and 2x+1 wide)
 
-	private final AppRoot ROOT; // reference for program-wide access
-
-	private BarChart<String, Number> sizeHistogram; // reference for updating of statistical output
-	private LineChart<Number, Number> biomassGraph; // ^
-	private LineChart<Number, Number> geneGraph; // ^
-	private BarChart<String, Number>[] geneHistograms = new BarChart[GeneType.values().length]; // ^
-
-	private HBox controls; // controls bar above environment
-	private GridPane simArea; // display area of the simulation
-	private EnvironmentTile[][] tiles; // graphical and logical grid structure for tiles in the simulation
-
-	private SimTimer simTimer = new SimTimer(this); // scheduled trigger for next simulation batch when simulating
-													// continuously
+	private int simTime = 0; // current time of the simulation (time-steps)
+	private long nextPlantId = 0; // id to give the next plant created
+	private long stepSeed; // seed of the random streams for each tile in the current time-step
 
-	private CheckBox killPeriodicCheck; // input tick-box to enable/disable periodic culling
-	private TextField killPeriodInput; // input for period of cull
-	private TextField killAreaInput; // input for radius of cull
+	private EventLog eventLog = null; // log to record events in (null if not logging events)
+	private EventBuffer events = null; // births and culls recorded outside of tile simulation (^)
 
-	private int simTime = 0; // current time of the simulation (time-steps)
-	private int simSpeed = 0; // number of time-steps per batch in continuous simulation
+	private StepContext[] contexts; // handlers of births and deaths for each stripe of tiles
+	private ArrayList<Callable<Void>> stripeTasks = new ArrayList<Callable<Void>>(); // simulation of each stripe
+	private ExecutorService workers = null; // threads to simulate stripes on (null if simulating on one thread)
 
 	/**
 	 * initialise a single demo plant.
 	 * 
 	 * @param width
 	 * @param height
-	 * @param root   reference for program-wide access
 	 */
-	public Environment(int width, int height, AppRoot root) {
-		super();
-
-		controls = new HBox();
-		simArea = new GridPane();
-
-		this.getChildren().add(controls);
-		this.getChildren().add(simArea);
+	public Environment(int width, int height) {
+		this(width, height, SimRandom.randomSeed());
+	}
 
-		this.ROOT = root;
-		initControls();
-		initGrid(width, height, root);
+	/**
+	 * initialise a single demo plant, with all randomness derived from the given
+	 * seed.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param seed
+	 */
+	public Environment(int width, int height, long seed) {
+		this.PARAMETERS = SimParameters.DEFAULT;
+		this.SEED = seed;
+		this.RNG = new SimRandom(seed);
+		initGrid(width, height);
+		setThreads(1);
 		initDemo();
-		refresh(0);
 	}
 
 	/**
@@ -100,213 +106,83 @@ public class Environment extends VBox {
 	 * @param nClusters     number of clusters of plants
 	 * @param clusterSize   number of plants per cluster
 	 * @param clusterRadius radius of each cluster
-	 * @param root          reference for program-wide access
 	 */
-	public Environment(int width, int height, int nClusters, int clusterSize, int clusterRadius, AppRoot root) {
-		super();
-
-		controls = new HBox();
-		simArea = new GridPane();
+	public Environment(int width, int height, int nClusters, int clusterSize, int clusterRadius) {
+		this(width, height, nClusters, clusterSize, clusterRadius, SimRandom.randomSeed());
+	}
 
-		this.getChildren().add(controls);
-		this.getChildren().add(simArea);
+	/**
+	 * initialise an environment with a randomly generated population of plants,
+	 * with all randomness derived from the given seed.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param nClusters     number of clusters of plants
+	 * @param clusterSize   number of plants per cluster
+	 * @param clusterRadius radius of each cluster
+	 * @param seed
+	 */
+	public Environment(int width, int height, int nClusters, int clusterSize, int clusterRadius, long seed) {
+		this(width, height, nClusters, clusterSize, clusterRadius, seed, SimParameters.DEFAULT);
+	}
 
-		this.ROOT = root;
-		initControls();
-		initGrid(width, height, root);
+	/**
+	 * initialise an environment with a randomly generated population of plants,
+	 * with all randomness derived from the given seed and plants living by the
+	 * given parameters.
+	 * 
+	 * @param width
+	 * @param height
+	 * @param nClusters     number of clusters of plants
+	 * @param clusterSize   number of plants per cluster
+	 * @param clusterRadius radius of each cluster
+	 * @param seed
+	 * @param parameters    constants shaping how plants live
+	 */
+	public Environment(int width, int height, int nClusters, int clusterSize, int clusterRadius, long seed,
+			SimParameters parameters) {
+		this.PARAMETERS = parameters;
+		this.SEED = seed;
+		this.RNG = new SimRandom(seed);
+		initGrid(width, height);
+		setThreads(1);
 		initCreatures(nClusters, clusterSize, clusterRadius);
+	}
 
-		refresh(0);
-	}
-
-	/**
-	 * initialise the controls bar and actions of each input.
-	 */
-	private void initControls() {
-		HBox stepControls = new HBox();
-		Button step1 = new Button();
-		Button step10 = new Button();
-		Button step100 = new Button();
-		Button step1000 = new Button();
-		HBox timeControls = new HBox();
-		Button timeStop = new Button();
-		Button time1 = new Button();
-		Button time10 = new Button();
-		Button time100 = new Button();
-		Button time1000 = new Button();
-		HBox killControls = new HBox();
-		Button killAll = new Button();
-		Button seedLife = new Button();
-		VBox killPeriodBox = new VBox();
-		VBox killAreaBox = new VBox();
-		Label killPeriodLabel = new Label();
-		Label killAreaLabel = new Label();
-		killPeriodicCheck = new CheckBox();
-		killPeriodInput = new TextField();
-		killAreaInput = new TextField();
-
-		step1.setText("Step 1");
-		step1.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				Environment.this.simulateSingle(1);
-			}
-		});
-
-		step10.setText("Step 10");
-		step10.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				Environment.this.simulateSingle(10);
-			}
-		});
-
-		step100.setText("Step 100");
-		step100.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				Environment.this.simulateSingle(100);
-			}
-		});
-
-		step1000.setText("Step 1000");
-		step1000.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				Environment.this.simulateSingle(1000);
-			}
-		});
+	/**
+	 * initialise an empty environment, continuing the random stream of a saved
+	 * environment (see Checkpoint).
+	 * 
+	 * @param width
+	 * @param height
+	 * @param seed       seed the saved environment was created with
+	 * @param rngState   state of the saved environment's source of randomness
+	 * @param parameters constants the saved environment was created with
+	 */
+	Environment(int width, int height, long seed, long rngState, SimParameters parameters) {
+		this.PARAMETERS = parameters;
+		this.SEED = seed;
+		this.RNG = new SimRandom(rngState);
+		initGrid(width, height);
+		setThreads(1);
+	}
 
-		timeStop.setText("Sim Stop");
-		timeStop.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				Environment.this.simSpeed = 0;
-			}
-		});
-
-		time1.setText("Sim Speed x1");
-		time1.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				if (Environment.this.simSpeed == 0) {
-					Environment.this.simSpeed = 1;
-					simulateContinuous();
-				} else {
-					Environment.this.simSpeed = 1;
-				}
-			}
-		});
-
-		time10.setText("Sim Speed x10");
-		time10.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				if (Environment.this.simSpeed == 0) {
-					Environment.this.simSpeed = 10;
-					simulateContinuous();
-				} else {
-					Environment.this.simSpeed = 10;
-				}
-			}
-		});
-
-		time100.setText("Sim Speed x100");
-		time100.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				if (Environment.this.simSpeed == 0) {
-					Environment.this.simSpeed = 100;
-					simulateContinuous();
-				} else {
-					Environment.this.simSpeed = 100;
-				}
-			}
-		});
-
-		time1000.setText("Sim Speed x1000");
-		time1000.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				if (Environment.this.simSpeed == 0) {
-					Environment.this.simSpeed = 1000;
-					simulateContinuous();
-				} else {
-					Environment.this.simSpeed = 1000;
-				}
-			}
-		});
-
-		killAll.setText("Clear");
-		killAll.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				for (int i = 0; i < Environment.this.tiles.length; i++) {
-					for (int j = 0; j < Environment.this.tiles[0].length; j++) {
-						Environment.this.tiles[i][j].killCreatures();
-					}
-				}
-				Environment.this.refresh(0);
-			}
-		});
-
-		seedLife.setText("New Plant");
-		seedLife.setOnAction(new EventHandler<ActionEvent>() {
-			@Override
-			public void handle(ActionEvent event) {
-				Environment.this.initCreatures(1, 1, 1);
-				;
-				Environment.this.refresh(0);
-			}
-		});
-
-		killPeriodicCheck.setText("Periodic Cull");
-		killPeriodLabel.setText("Cull Period");
-		killAreaLabel.setText("Cull Radius");
-
-		killPeriodBox.getChildren().add(killPeriodLabel);
-		killPeriodBox.getChildren().add(killPeriodInput);
-		killPeriodBox.setAlignment(Pos.CENTER);
-		killAreaBox.getChildren().add(killAreaLabel);
-		killAreaBox.getChildren().add(killAreaInput);
-		killAreaBox.setAlignment(Pos.CENTER);
-
-		stepControls.getChildren().add(step1);
-		stepControls.getChildren().add(step10);
-		stepControls.getChildren().add(step100);
-		stepControls.getChildren().add(step1000);
-		timeControls.getChildren().add(timeStop);
-		timeControls.getChildren().add(time1);
-		timeControls.getChildren().add(time10);
-		timeControls.getChildren().add(time100);
-		timeControls.getChildren().add(time1000);
-		killControls.getChildren().add(killAll);
-		killControls.getChildren().add(seedLife);
-		killControls.getChildren().add(killPeriodicCheck);
-		killControls.getChildren().add(killPeriodBox);
-		killControls.getChildren().add(killAreaBox);
-		controls.getChildren().add(stepControls);
-		controls.getChildren().add(timeControls);
-		controls.getChildren().add(killControls);
-		controls.setSpacing(CONTROL_SPACING);
-	}
-
-	/**
-	 * initialise the tile grid structure.
+	/**
+	 * initialise the tile grid structure, with no chunks allocated.
 	 * 
 	 * @param width
 	 * @param height
-	 * @param root   reference for program-wide access
 	 */
-	private void initGrid(int width, int height, AppRoot root) {
-		tiles = new EnvironmentTile[width][height];
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				tiles[i][j] = new EnvironmentTile(i, j, root);
-				simArea.add(tiles[i][j], i, j);
-			}
-		}
-		simArea.setGridLinesVisible(true);
+	private void initGrid(int width, int height) {
+		int chunkColumns = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+		this.width = width;
+		this.height = height;
+		chunkRows = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		chunks = new EnvironmentTile[chunkColumns * chunkRows][];
+		chunkVersions = new int[chunkColumns * chunkRows];
+		active = new TileSet(width, height);
+		changed = new TileSet(width, height);
 	}
 
 	/**
@@ -316,19 +192,18 @@ public class Environment extends VBox {
 	 * @param clusterSize   number of plants per cluster
 	 * @param clusterRadius radius of each cluster
 	 */
-	private void initCreatures(int nClusters, int clusterSize, int clusterRadius) {
-		Random rng = new Random();
+	public void initCreatures(int nClusters, int clusterSize, int clusterRadius) {
 		int clusterX;
 		int clusterY;
-		Creature[] clusterCreatures;
+		long[] clusterGenomes;
 		for (int i = 0; i < nClusters; i++) {
-			clusterX = rng.nextInt(tiles.length);
-			clusterY = rng.nextInt(tiles[0].length);
-			clusterCreatures = new Creature[clusterSize];
+			clusterX = RNG.nextInt(width);
+			clusterY = RNG.nextInt(height);
+			clusterGenomes = new long[clusterSize];
 			for (int j = 0; j < clusterSize; j++) {
-				clusterCreatures[j] = Plant.randomPlant(ROOT);
+				clusterGenomes[j] = Plant.randomPlant(RNG, PARAMETERS);
 			}
-			scatterAll(tiles[clusterX][clusterY], clusterRadius, clusterCreatures);
+			scatterAll(getTile(clusterX, clusterY), clusterRadius, clusterGenomes);
 		}
 	}
 
@@ -336,309 +211,432 @@ public class Environment extends VBox {
 	 * randomly place a single plant with predetermined genes.
 	 */
 	private void initDemo() {
-		Random rng = new Random();
 		int posX;
 		int posY;
 
-		posX = rng.nextInt(tiles.length);
-		posY = rng.nextInt(tiles[0].length);
-		scatter(tiles[posX][posY], 0, Plant.demoPlant(ROOT));
+		posX = RNG.nextInt(width);
+		posY = RNG.nextInt(height);
+		long genome = Plant.demoPlant();
+		addPlant(getTile(posX, posY), genome, (int) Genome.getGeneValue(genome, GeneType.STARTING_SIZE));
 	}
 
 	/**
-	 * generate a size histogram for the population of this environment.
+	 * count the plants in the environment.
 	 * 
 	 * @return
 	 */
-	private Chart sizeHistogram() {
-		CategoryAxis xAxis = new CategoryAxis();
-		NumberAxis yAxis = new NumberAxis();
-		Series<String, Number> series = new Series<String, Number>();
+	public int getPopulation() {
+		return STATS.getPopulation();
+	}
 
-		xAxis.setLabel("Size");
-		yAxis.setLabel("Number");
-		sizeHistogram = new BarChart<String, Number>(xAxis, yAxis);
-		sizeHistogram.setTitle("Creature size");
-		series.setName("Size");
-		sizeHistogram.getData().add(series);
+	/**
+	 * width getter (in tiles).
+	 * 
+	 * @return
+	 */
+	public int getWidth() {
+		return width;
+	}
 
-		refreshSizeHistogram();
-		return sizeHistogram;
+	/**
+	 * height getter (in tiles).
+	 * 
+	 * @return
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * seed getter.
+	 * 
+	 * @return
+	 */
+	public long getSeed() {
+		return SEED;
 	}
 
 	/**
-	 * update the size histogram (if exists) with the current state of the
-	 * simulation.
+	 * parameters getter.
+	 * 
+	 * @return
 	 */
-	private void refreshSizeHistogram() {
-		if (sizeHistogram != null) {
-			Series<String, Number> series;
-			ObservableList<Data<String, Number>> data;
-			Creature[] creatures = getCreatures();
-			int numSize;
+	public SimParameters getParameters() {
+		return PARAMETERS;
+	}
 
-			series = sizeHistogram.getData().get(0);
+	/**
+	 * simTime getter.
+	 * 
+	 * @return
+	 */
+	public int getSimTime() {
+		return simTime;
+	}
 
-			data = series.getData();
+	/**
+	 * set the number of threads to simulate tiles on. With more than one thread,
+	 * the grid is split into that many stripes of columns which are simulated at
+	 * the same time. Births and deaths are always carried out once every stripe
+	 * has finished, in column order, and each tile draws from its own random
+	 * stream, so results depend only on the seed, not on the number of threads or
+	 * the order they happen to run in.
+	 * 
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		int nStripes = Math.max(1, Math.min(threads, width));
 
-			for (int i = 1; i < Creature.MAX_SIZE; i++) {
-				numSize = 0;
-				for (Creature creature : creatures) {
-					if (creature.getSize() == i) {
-						numSize++;
-					}
-				}
-				data.add(new Data<String, Number>("" + i, numSize));
-			}
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+		stripeTasks.clear();
+
+		if (nStripes == 1) {
+			contexts = new StepContext[] { new StepContext(this, new SimRandom(SEED)) };
+			contexts[0].setLogging(eventLog != null);
+		} else {
+			contexts = new StepContext[nStripes];
+			for (int i = 0; i < nStripes; i++) {
+				final int stripe = i;
+				contexts[i] = new StepContext(this, new SimRandom(SEED));
+				contexts[i].setLogging(eventLog != null);
+				stripeTasks.add(() -> {
+					long allocated = StepMetrics.allocatedBytes();
+
+					simulateStripe(stripe);
+					contexts[stripe].addAllocated(allocated < 0 ? -1 : StepMetrics.allocatedBytes() - allocated);
+					return null;
+				});
+			}
+			workers = Executors.newFixedThreadPool(nStripes, (task) -> {
+				Thread thread = new Thread(task, "tile-worker");
+				thread.setDaemon(true);
+				return thread;
+			});
 		}
 	}
 
 	/**
-	 * generate a biomass over time graph for the population of this environment.
+	 * get the number of threads tiles are simulated on.
 	 * 
 	 * @return
 	 */
-	private Chart biomassGraph() {
-		NumberAxis xAxis = new NumberAxis();
-		NumberAxis yAxis = new NumberAxis();
-		Series<Number, Number> series = new Series<Number, Number>();
+	public int getThreads() {
+		return contexts.length;
+	}
 
-		xAxis.setLabel("Time");
-		yAxis.setLabel("Total Biomass");
-		biomassGraph = new LineChart<Number, Number>(xAxis, yAxis);
-		biomassGraph.setTitle("Biomass Over Time");
-		series.setName("Total Biomass");
+	/**
+	 * set the log to record every birth, death, growth and cull in from now on.
+	 * Events recorded so far are handed to the previous log, which can then be
+	 * closed. Must not be called while simulating a time-step.
+	 * 
+	 * @param log log to record events in, or null to stop recording
+	 */
+	public void setEventLog(EventLog log) {
+		if (eventLog != null) {
+			events = eventLog.swap(events);
+		}
+		eventLog = log;
+		events = log != null ? new EventBuffer() : null;
+		for (StepContext context : contexts) {
+			context.setLogging(log != null);
+		}
+	}
 
-		biomassGraph.getData().add(series);
-		refreshBiomassGraph(0);
-		return biomassGraph;
+	/**
+	 * event log getter.
+	 * 
+	 * @return log events are recorded in, or null if not logging events
+	 */
+	EventLog getEventLog() {
+		return eventLog;
 	}
 
 	/**
-	 * update the biomass graph (if exists) with the current state of the
-	 * simulation.
+	 * genome table getter.
+	 * 
+	 * @return
 	 */
-	private void refreshBiomassGraph(int step) {
-		if (biomassGraph != null && getCreatures().length != 0) {
-			Series<Number, Number> series = biomassGraph.getData().get(0);
-			ObservableList<Data<Number, Number>> data = series.getData();
-			Creature[] creatures = getCreatures();
-			int totalMass = 0;
-			int nextTime;
+	public GenomeTable getGenomes() {
+		return GENOMES;
+	}
 
-			for (int i = 0; i < data.size(); i++) {
-				nextTime = (int) data.get(i).getXValue() - step;
-				if (nextTime >= -HISTORY_LENGTH) {
-					data.get(i).setXValue(nextTime);
-				} else {
-					data.get(i).setXValue(nextTime);
-					data.remove(i);
-				}
-			}
+	/**
+	 * phylogeny getter (up to date between time-steps). The lineage of each plant
+	 * is its node in the phylogeny (see PlantStore).
+	 * 
+	 * @return
+	 */
+	public Phylogeny getPhylogeny() {
+		return LINEAGES;
+	}
 
-			for (Creature creature : creatures) {
-				totalMass += creature.getSize();
-			}
-			data.add(new Data<Number, Number>(0, totalMass));
-		}
+	/**
+	 * speciation getter (up to date between time-steps). The species of each
+	 * plant is its slot in the speciation (see PlantStore).
+	 * 
+	 * @return
+	 */
+	public Speciation getSpeciation() {
+		return SPECIES;
 	}
 
 	/**
-	 * generate a gene value over time graph for the population of this environment.
+	 * metrics getter.
 	 * 
 	 * @return
 	 */
-	private Chart geneGraph() {
-		NumberAxis xAxis = new NumberAxis();
-		NumberAxis yAxis = new NumberAxis();
-		Series<Number, Number>[] seriesSet = new Series[GeneType.values().length];
+	public StepMetrics getMetrics() {
+		return METRICS;
+	}
 
-		for (int i = 0; i < seriesSet.length; i++) {
-			seriesSet[i] = new Series<Number, Number>();
-			seriesSet[i].setName(GeneType.values()[i].alias());
-		}
+	/**
+	 * population statistics getter (up to date between time-steps).
+	 * 
+	 * @return
+	 */
+	public PopulationStats getStats() {
+		return STATS;
+	}
 
-		xAxis.setLabel("Time");
-		yAxis.setLabel("Gene Values (proportional)");
-		geneGraph = new LineChart<Number, Number>(xAxis, yAxis);
-		geneGraph.setTitle("Gene Values Over Time");
+	/**
+	 * create a copy of the current state of the environment for display, which is
+	 * unaffected by later simulation. Only tiles changed since the last snapshot
+	 * are copied; the rest are shared with it.
+	 * 
+	 * @return
+	 */
+	public EnvironmentSnapshot snapshot() {
+		lastSnapshot = new EnvironmentSnapshot(this, active, changed, lastSnapshot);
+		return lastSnapshot;
+	}
 
-		geneGraph.getData().addAll(seriesSet);
-		refreshGeneGraph(0);
-		return geneGraph;
+	/**
+	 * count the tiles simulated each time-step, which is every tile holding plants
+	 * along with any emptied since they were last simulated.
+	 * 
+	 * @return
+	 */
+	public int getActiveTiles() {
+		return active.size();
 	}
 
 	/**
-	 * update the gene graph (if exists) with the current state of the simulation.
+	 * count the chunks of tiles currently allocated.
+	 * 
+	 * @return
 	 */
-	private void refreshGeneGraph(int step) {
-		if (geneGraph != null && getCreatures().length != 0) {
-			Creature[] creatures = getCreatures();
-			Series<Number, Number> currentSeries;
-			ObservableList<Data<Number, Number>> currentData;
-			int nextDatapointTime;
-			float[] averageGeneMags = new float[GeneType.values().length];
-			float[] currentGeneMags;
+	public int getChunkCount() {
+		return nAllocated;
+	}
 
-			for (Creature creature : creatures) {
-				currentGeneMags = creature.getGeneMagnitudes();
-				for (int i = 0; i < GeneType.values().length; i++) {
-					averageGeneMags[i] += currentGeneMags[i];
-				}
-			}
-			for (int i = 0; i < GeneType.values().length; i++) {
-				averageGeneMags[i] = averageGeneMags[i] / creatures.length;
-			}
+	/**
+	 * get the tile at the specified grid reference, wrapping in both dimensions
+	 * and allocating its chunk if it has none. Tiles are only guaranteed to stay
+	 * in the grid until the end of the next time-step unless a plant is added to
+	 * them, so should not be kept for longer.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public EnvironmentTile getTile(int x, int y) {
+		int chunk;
 
-			for (GeneType type : GeneType.values()) {
-				currentSeries = geneGraph.getData().get(type.ordinal());
-				currentData = currentSeries.getData();
-
-				for (int i = 0; i < currentData.size(); i++) {
-					nextDatapointTime = (int) currentData.get(i).getXValue() - step;
-					if (nextDatapointTime >= -HISTORY_LENGTH) {
-						currentData.get(i).setXValue(nextDatapointTime);
-					} else {
-						currentData.get(i).setXValue(nextDatapointTime);
-						currentData.remove(i);
-					}
-				}
-				currentData.add(new Data<Number, Number>(0, averageGeneMags[type.ordinal()]));
-			}
+		if (x < 0 || x >= width) {
+			x = Math.floorMod(x, width);
 		}
+		if (y < 0 || y >= height) {
+			y = Math.floorMod(y, height);
+		}
+		chunk = x / CHUNK_SIZE * chunkRows + y / CHUNK_SIZE;
+		if (chunks[chunk] == null) {
+			allocateChunk(chunk);
+		}
+		return chunks[chunk][x % CHUNK_SIZE * CHUNK_SIZE + y % CHUNK_SIZE];
 	}
 
 	/**
-	 * generate a gene value histogram for each gene for the population of this
-	 * environment.
+	 * get the plants on the tile at the specified grid reference, without
+	 * allocating its chunk (the returned store must not be changed).
 	 * 
-	 * @return
+	 * @param x
+	 * @param y
+	 * @return plants on the tile, empty if its chunk is not allocated
 	 */
-	private Chart[] geneHistograms() {
-		CategoryAxis xAxis[] = new CategoryAxis[GeneType.values().length];
-		NumberAxis yAxis[] = new NumberAxis[GeneType.values().length];
-		Series<String, Number> series[] = new Series[GeneType.values().length];
+	public PlantStore getPlants(int x, int y) {
+		EnvironmentTile tile = findTile(x, y);
 
-		for (int i = 0; i < GeneType.values().length; i++) {
-			xAxis[i] = new CategoryAxis();
-			yAxis[i] = new NumberAxis();
-			xAxis[i].setLabel("Gene Value");
-			yAxis[i].setLabel("Number");
+		return tile != null ? tile.getPlants() : EMPTY;
+	}
 
-			geneHistograms[i] = new BarChart<String, Number>(xAxis[i], yAxis[i]);
-			geneHistograms[i].setTitle("Distribution of " + GeneType.values()[i].alias());
+	/**
+	 * find the first tile in the given column at or after the given row that may
+	 * hold plants. Every tile holding plants is found this way, along with a few
+	 * recently emptied.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return row of the tile, or -1 if there is none
+	 */
+	int nextActive(int x, int y) {
+		return active.next(x, y);
+	}
 
-			series[i] = new Series<String, Number>();
-			series[i].setName(GeneType.values()[i].alias());
-			geneHistograms[i].getData().add(series[i]);
-		}
+	/**
+	 * get the tile at the specified grid reference (within the grid) if its chunk
+	 * is allocated.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return tile, or null if its chunk is not allocated
+	 */
+	private EnvironmentTile findTile(int x, int y) {
+		EnvironmentTile[] chunk = chunks[x / CHUNK_SIZE * chunkRows + y / CHUNK_SIZE];
 
-		refreshGeneHistograms();
-		return geneHistograms;
+		return chunk != null ? chunk[x % CHUNK_SIZE * CHUNK_SIZE + y % CHUNK_SIZE] : null;
 	}
 
 	/**
-	 * update the gene histograms (if exists) with the current state of the
-	 * simulation.
+	 * allocate the tiles of a chunk, reusing a pooled chunk if there is one, with
+	 * the plants of each starting from a version no tile of the chunk has had
+	 * before (see PlantStore).
+	 * 
+	 * @param chunk index of the chunk
 	 */
-	private void refreshGeneHistograms() {
-		Creature[] creatures = getCreatures();
-
-		for (int i = 0; i < GeneType.values().length; i++) {
-			if (geneHistograms[i] != null) {
-				Series<String, Number> series = geneHistograms[i].getData().get(0);
-				ObservableList<Data<String, Number>> data = series.getData();
-				int numMag;
+	private void allocateChunk(int chunk) {
+		int startX = chunk / chunkRows * CHUNK_SIZE;
+		int startY = chunk % chunkRows * CHUNK_SIZE;
+		EnvironmentTile[] chunkTiles;
+		EnvironmentTile tile;
+
+		METRICS.addChunk(nPooled > 0);
+		if (nPooled > 0) {
+			nPooled--;
+			chunkTiles = pool[nPooled];
+			pool[nPooled] = null;
+		} else {
+			chunkTiles = new EnvironmentTile[CHUNK_SIZE * CHUNK_SIZE];
+		}
+		for (int i = 0; i < CHUNK_SIZE; i++) {
+			for (int j = 0; j < CHUNK_SIZE; j++) {
+				tile = chunkTiles[i * CHUNK_SIZE + j];
+				if (startX + i >= width || startY + j >= height) {
+					chunkTiles[i * CHUNK_SIZE + j] = null;
+				} else if (tile != null) {
+					tile.reset(startX + i, startY + j, chunkVersions[chunk]);
+				} else {
+					chunkTiles[i * CHUNK_SIZE + j] = new EnvironmentTile(startX + i, startY + j, GENOMES,
+							LINEAGES, SPECIES, chunkVersions[chunk]);
+				}
+			}
+		}
+		chunks[chunk] = chunkTiles;
+		if (nAllocated == allocated.length) {
+			allocated = Arrays.copyOf(allocated, nAllocated * 2);
+		}
+		allocated[nAllocated] = chunk;
+		nAllocated++;
+	}
 
-				if (creatures.length != 0) {
-					for (float j = creatures[0].GENOME.getGene(GeneType.values()[i]).MIN_VALUE; j <= creatures[0].GENOME
-							.getGene(GeneType.values()[i]).MAX_VALUE; j += creatures[0].GENOME
-									.getGene(GeneType.values()[i]).INCREMENTS) {
-						numMag = 0;
-						for (Creature creature : creatures) {
-							if (creature.GENOME.getGene(GeneType.values()[i]).getValue() == j) {
-								numMag++;
-							}
-						}
-						data.add(new Data<String, Number>("" + j, numMag));
+	/**
+	 * release every allocated chunk with no plants left on any of its tiles,
+	 * keeping it in the pool if there is room with the storage of its plants
+	 * trimmed, so the pool never holds more than MAX_POOLED_CHUNKS chunks of
+	 * empty tiles.
+	 */
+	private void releaseEmptyChunks() {
+		int chunk;
+		int startX;
+		int startY;
+		int version;
+
+		for (int i = 0; i < nAllocated;) {
+			chunk = allocated[i];
+			startX = chunk / chunkRows * CHUNK_SIZE;
+			startY = chunk % chunkRows * CHUNK_SIZE;
+			if (!active.isBlockEmpty(startX, Math.min(startX + CHUNK_SIZE, width), startY,
+					Math.min(startY + CHUNK_SIZE, height))) {
+				i++;
+				continue;
+			}
+			version = chunkVersions[chunk];
+			for (EnvironmentTile tile : chunks[chunk]) {
+				if (tile != null) {
+					version = Math.max(version, tile.getPlants().getVersion());
+				}
+			}
+			chunkVersions[chunk] = version + 1;
+			if (nPooled < MAX_POOLED_CHUNKS) {
+				for (EnvironmentTile tile : chunks[chunk]) {
+					if (tile != null) {
+						tile.getPlants().trim();
 					}
 				}
+				pool[nPooled] = chunks[chunk];
+				nPooled++;
 			}
+			chunks[chunk] = null;
+			nAllocated--;
+			allocated[i] = allocated[nAllocated];
 		}
 	}
 
 	/**
-	 * collect the size histogram, biomass graph, and gene graphs into an array.
+	 * set whether and how the environment should be periodically culled.
 	 * 
-	 * @return
+	 * @param enabled true to enable periodic culling
+	 * @param period  number of time-steps between cullings (at least 1)
+	 * @param radius  radius of area to cull (at least 0)
 	 */
-	public Chart[] getBasicCharts() {
-		Chart[] charts = new Chart[3];
-
-		charts[0] = sizeHistogram();
-		charts[1] = biomassGraph();
-		charts[2] = geneGraph();
-
-		return charts;
+	public void setPeriodicCull(boolean enabled, int period, int radius) {
+		if (period < 1 || radius < 0) {
+			throw new IllegalArgumentException("cull out of range");
+		}
+		this.killPeriodic = enabled;
+		this.killPeriod = period;
+		this.killRadius = radius;
 	}
 
 	/**
-	 * collect the gene value histograms into an array.
+	 * periodic cull enabled getter.
 	 * 
 	 * @return
 	 */
-	public Chart[] getGeneHistograms() {
-		return geneHistograms();
+	public boolean isPeriodicCull() {
+		return killPeriodic;
 	}
 
 	/**
-	 * get a reference to every creature in the environment.
+	 * cull period getter.
 	 * 
 	 * @return
 	 */
-	public Creature[] getCreatures() {
-		ArrayList<Creature> creatures = new ArrayList<Creature>();
-
-		for (int i = 0; i < tiles.length; i++) {
-			for (int j = 0; j < tiles[0].length; j++) {
-				for (Creature creature : getTile(i, j).getCreatures()) {
-					creatures.add(creature);
-				}
-			}
-		}
-
-		return creatures.toArray(new Creature[0]);
+	public int getCullPeriod() {
+		return killPeriod;
 	}
 
 	/**
-	 * get the tile at the specified grid reference, wrapping in both dimensions.
+	 * cull radius getter.
 	 * 
-	 * @param x
-	 * @param y
 	 * @return
 	 */
-	public EnvironmentTile getTile(int x, int y) {
-		int trueX;
-		int trueY;
+	public int getCullRadius() {
+		return killRadius;
+	}
 
-		if (x >= 0) {
-			trueX = x % tiles.length;
-		} else {
-			trueX = x % tiles.length;
-			if (trueX < 0) {
-				trueX += tiles.length;
-			}
-		}
-		if (y >= 0) {
-			trueY = y % tiles[0].length;
-		} else {
-			trueY = y % tiles[0].length;
-			if (trueY < 0) {
-				trueY += tiles[0].length;
+	/**
+	 * kill all creatures in the environment.
+	 */
+	public void killAll() {
+		for (int i = 0; i < width; i++) {
+			for (int j = active.next(i, 0); j >= 0; j = active.next(i, j + 1)) {
+				killTile(findTile(i, j));
 			}
 		}
-
-		return tiles[trueX][trueY];
+		releaseEmptyChunks();
 	}
 
 	/**
@@ -648,138 +646,271 @@ public class Environment extends VBox {
 	 * @param clusterRadius radius of each area.
 	 */
 	public void killRandomAreas(int nClusters, int clusterRadius) {
-		Random rng = new Random();
 		int clusterX;
 		int clusterY;
 		for (int i = 0; i < nClusters; i++) {
-			clusterX = rng.nextInt(tiles.length);
-			clusterY = rng.nextInt(tiles[0].length);
+			clusterX = RNG.nextInt(width);
+			clusterY = RNG.nextInt(height);
+			if (events != null) {
+				events.cull(simTime, clusterRadius, clusterX, clusterY);
+			}
 			for (int x = clusterX - clusterRadius; x <= clusterX + clusterRadius; x++) {
 				for (int y = clusterY - clusterRadius; y <= clusterY + clusterRadius; y++) {
-					getTile(x, y).killCreatures();
+					killTile(findTile(Math.floorMod(x, width), Math.floorMod(y, height)));
 				}
 			}
 		}
 	}
 
 	/**
-	 * scatter a number of creature over an area.
+	 * kill all creatures on the given tile.
 	 * 
-	 * @param tile      tile at centre of area
-	 * @param dist      maximum distance from that tile to scatter to
-	 * @param creatures creatures to be scattered
+	 * @param tile tile to kill the creatures of, or null if its chunk is not
+	 *             allocated
 	 */
-	public void scatterAll(EnvironmentTile tile, int dist, Creature[] creatures) {
-		for (Creature creature : creatures) {
-			scatter(tile, dist, creature);
+	private void killTile(EnvironmentTile tile) {
+		PlantStore plants;
+
+		if (tile == null || tile.getPlants().getCount() == 0) {
+			return;
 		}
+		plants = tile.getPlants();
+		METRICS.addDeaths(plants.getCount());
+		if (events != null) {
+			for (int i = 0; i < plants.getCount(); i++) {
+				events.death(simTime, plants.getId(i), EventBuffer.CULLED, tile.getX(), tile.getY());
+			}
+		}
+		tile.killCreatures(STATS);
+		active.remove(tile.getX(), tile.getY());
+		changed.add(tile.getX(), tile.getY());
 	}
 
 	/**
-	 * place a single creature randomly within the given area
+	 * scatter a number of new plants over an area, each at the starting size given
+	 * by its genes.
 	 * 
-	 * @param tile     tile tile at centre of area
-	 * @param dist     maximum distance from that tile to place creature
-	 * @param creature
+	 * @param tile    tile at centre of area
+	 * @param dist    maximum distance from that tile to scatter to
+	 * @param genomes genomes of the plants to be scattered
 	 */
-	public void scatter(EnvironmentTile tile, int dist, Creature creature) {
-		Random rng = new Random();
+	public void scatterAll(EnvironmentTile tile, int dist, long[] genomes) {
+		for (long genome : genomes) {
+			scatter(tile, dist, genome, (int) Genome.getGeneValue(genome, GeneType.STARTING_SIZE), -1, -1, RNG);
+		}
+	}
 
-		getTile(tile.getX() + rng.nextInt(dist * 2 + 1) - dist, tile.getY() + rng.nextInt(dist * 2 + 1) - dist)
-				.addCreature(creature);
+	/**
+	 * place a single new plant randomly within the given area
+	 * 
+	 * @param tile   tile tile at centre of area
+	 * @param dist   maximum distance from that tile to place plant
+	 * @param genome genome of the plant
+	 * @param size   initial size of the plant
+	 * @param parent        lineage of the plant's parent, or -1 if it has none
+	 * @param parentSpecies species of the plant's parent, or -1 if it has none
+	 * @param rng           source of randomness for the placement
+	 */
+	public void scatter(EnvironmentTile tile, int dist, long genome, int size, int parent, int parentSpecies,
+			SimRandom rng) {
+		addPlant(getTile(tile.getX() + rng.nextInt(dist * 2 + 1) - dist,
+				tile.getY() + rng.nextInt(dist * 2 + 1) - dist), genome, size, parent, parentSpecies);
 	}
 
 	/**
-	 * read the input for cull period and cull area and move it within the min/max
-	 * values if necessary.
+	 * add a newly created plant to the given tile.
+	 * 
+	 * @param tile
+	 * @param genome genome of the plant
+	 * @param size   initial size of the plant
 	 */
-	public void correctInput() {
-		int periodInput;
-		int areaInput;
+	public void addPlant(EnvironmentTile tile, long genome, int size) {
+		addPlant(tile, genome, size, -1, -1);
+	}
 
-		try {
-			periodInput = Integer.parseInt(killPeriodInput.getText());
-			areaInput = Integer.parseInt(killAreaInput.getText());
+	/**
+	 * add a newly created offspring to the given tile.
+	 * 
+	 * @param tile
+	 * @param genome        genome of the plant
+	 * @param size          initial size of the plant
+	 * @param parent        lineage of the plant's parent, or -1 if it has none
+	 * @param parentSpecies species of the plant's parent, or -1 if it has none
+	 */
+	public void addPlant(EnvironmentTile tile, long genome, int size, int parent, int parentSpecies) {
+		METRICS.addBirths(1);
+		STATS.birth(size, genome);
+		if (events != null) {
+			events.birth(simTime, nextPlantId, parent < 0 ? -1 : LINEAGES.getPlantId(parent), genome, size,
+					tile.getX(), tile.getY());
+		}
+		tile.addPlant(nextPlantId, GENOMES.add(genome), LINEAGES.add(nextPlantId, parent, simTime),
+				SPECIES.add(genome, parentSpecies, simTime), size);
+		active.add(tile.getX(), tile.getY());
+		changed.add(tile.getX(), tile.getY());
+		nextPlantId++;
+	}
 
-			if (periodInput < MIN_KILL_PERIOD) {
-				periodInput = MIN_KILL_PERIOD;
-			}
-			if (periodInput > MAX_KILL_PERIOD) {
-				periodInput = MAX_KILL_PERIOD;
-			}
-			if (areaInput < MIN_KILL_RADIUS) {
-				areaInput = MIN_KILL_RADIUS;
-			}
-			if (areaInput > MAX_KILL_RADIUS) {
-				areaInput = MAX_KILL_RADIUS;
-			}
-		} catch (NumberFormatException e) {
-			periodInput = MIN_KILL_PERIOD;
-			areaInput = MIN_KILL_RADIUS;
+	/**
+	 * add a plant restored from a saved environment to the given tile.
+	 * 
+	 * @param tile
+	 * @param plantId unique id of the plant
+	 * @param genome  genome of the plant
+	 * @param lineage node of the plant in the restored phylogeny
+	 * @param species slot of the plant's species in the restored speciation
+	 * @param size    current size of the plant
+	 * @param energy  current energy of the plant
+	 * @param age     current age of the plant
+	 */
+	void restorePlant(EnvironmentTile tile, long plantId, long genome, int lineage, int species, int size,
+			float energy, int age) {
+		if (!LINEAGES.isUsed(lineage) || !LINEAGES.isLiving(lineage) || LINEAGES.getPlantId(lineage) != plantId) {
+			throw new RuntimeException("restored plant lineage error");
 		}
+		SPECIES.restoreMember(species);
+		STATS.birth(size, genome);
+		tile.getPlants().add(plantId, GENOMES.add(genome), lineage, species, size, energy, age);
+		active.add(tile.getX(), tile.getY());
+		changed.add(tile.getX(), tile.getY());
+	}
 
-		killPeriodInput.setText("" + periodInput);
-		killAreaInput.setText("" + areaInput);
+	/**
+	 * set the time and next plant id of a restored environment.
+	 * 
+	 * @param simTime
+	 * @param nextPlantId
+	 */
+	void restoreTime(int simTime, long nextPlantId) {
+		this.simTime = simTime;
+		this.nextPlantId = nextPlantId;
+	}
+
+	/**
+	 * next plant id getter.
+	 * 
+	 * @return
+	 */
+	long getNextPlantId() {
+		return nextPlantId;
+	}
+
+	/**
+	 * get the state of the environment's source of randomness.
+	 * 
+	 * @return
+	 */
+	long getRandomState() {
+		return RNG.getState();
 	}
 
 	/**
-	 * simulate a single batch of time-steps for the whole environment.
+	 * simulate a single batch of time-steps for the whole environment, measuring
+	 * each phase (see StepMetrics).
 	 * 
 	 * @param step number of time-steps in batch
 	 */
 	public void simulateSingle(int step) {
-		correctInput();
+		StepEvent event;
+		long stepStart;
+		long phaseStart;
+		long allocated;
+
 		for (int i = 0; i < step; i++) {
+			event = new StepEvent();
+			event.begin();
+			stepStart = System.nanoTime();
+			allocated = StepMetrics.allocatedBytes();
+
 			if (simTime < Integer.MAX_VALUE) {
 				simTime++;
 			} else {
 				simTime = 0;
 			}
+			SPECIES.nextStep();
 
-			if (killPeriodicCheck.isSelected() && simTime % Integer.parseInt(killPeriodInput.getText()) == 0) {
-				killRandomAreas(1, (int) Integer.parseInt(killAreaInput.getText()));
+			if (killPeriodic && simTime % killPeriod == 0) {
+				phaseStart = System.nanoTime();
+				killRandomAreas(1, killRadius);
+				if (events != null) {
+					events = eventLog.swap(events); // culls come before the tile events of this step
+				}
+				METRICS.add(StepPhase.CULL, System.nanoTime() - phaseStart);
 			}
 
-			for (int j = 0; j < tiles.length; j++) {
-				for (int k = 0; k < tiles[0].length; k++) {
-					getTile(j, k).simulateCreatures(this, SUNLIGHT);
-				}
+			stepSeed = RNG.nextLong();
+			for (StepContext context : contexts) {
+				context.setTimed(METRICS.isDetailed());
 			}
-		}
+			if (workers == null) {
+				phaseStart = System.nanoTime();
+				simulateStripe(0);
+				METRICS.add(StepPhase.TILES, System.nanoTime() - phaseStart);
+			} else {
+				simulateParallel();
+			}
+			for (StepContext context : contexts) {
+				context.applyBirths();
+			}
+			for (StepContext context : contexts) {
+				context.applyDeaths();
+			}
+			if (events != null) {
+				phaseStart = System.nanoTime();
+				events = eventLog.swap(events);
+				METRICS.add(StepPhase.STATS, System.nanoTime() - phaseStart);
+			}
+			releaseEmptyChunks();
 
-		refresh(step);
+			METRICS.addAllocated(allocated < 0 ? -1 : StepMetrics.allocatedBytes() - allocated);
+			METRICS.add(StepPhase.STEP, System.nanoTime() - stepStart);
+			METRICS.endStep(simTime, STATS.getPopulation(), event);
+		}
 	}
 
 	/**
-	 * simulate a single batch of time-steps and schedule a recursion after a period
-	 * of time.
+	 * simulate every stripe of tiles at the same time on the worker threads.
 	 */
-	public void simulateContinuous() {
-		if (simSpeed > 0) {
-			Platform.runLater(() -> simulateSingle(simSpeed));
-			simTimer = new SimTimer(this);
-			TIMER.schedule(simTimer, FRAME_TIME);
+	private void simulateParallel() {
+		long start = System.nanoTime();
+
+		try {
+			for (Future<Void> result : workers.invokeAll(stripeTasks)) {
+				result.get();
+			}
+			METRICS.add(StepPhase.TILES, System.nanoTime() - start);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("simulation interrupted");
+		} catch (ExecutionException e) {
+			throw new RuntimeException("tile simulation error", e.getCause());
 		}
 	}
 
 	/**
-	 * refresh the graphical appearance of the environment and statistical output.
+	 * simulate a single time-step for each active tile in a stripe of columns,
+	 * dropping tiles left empty from the active set. Empty tiles have nothing to
+	 * simulate, so skipping them leaves results unchanged, and births are held
+	 * back until every stripe has finished (see StepContext), so the set does not
+	 * grow during the scan.
 	 * 
-	 * @param step number of steps that have passed since last refresh
+	 * @param stripe index of the stripe
 	 */
-	public void refresh(int step) {
-		for (int i = 0; i < tiles.length; i++) {
-			for (int j = 0; j < tiles[0].length; j++) {
-				tiles[i][j].refresh();
+	private void simulateStripe(int stripe) {
+		int startX = stripe * width / contexts.length;
+		int endX = (stripe + 1) * width / contexts.length;
+		EnvironmentTile tile;
+
+		for (int j = startX; j < endX; j++) {
+			for (int k = active.next(j, 0); k >= 0; k = active.next(j, k + 1)) {
+				tile = findTile(j, k);
+				contexts[stripe].getRandom().setSeed(SimRandom.stream(stepSeed, j, k));
+				tile.simulateCreatures(contexts[stripe], PARAMETERS.getSunlight());
+				changed.add(j, k);
+				if (tile.getPlants().getCount() == 0) {
+					active.remove(j, k);
+				}
 			}
 		}
-
-		refreshSizeHistogram();
-		refreshGeneHistograms();
-
-		if (step != 0) {
-			refreshBiomassGraph(step);
-			refreshGeneGraph(step);
-		}
 	}
 }
@@ -0,0 +1,124 @@
+package environments;
+
+import java.util.Arrays;
+
+import creatures.PlantStore;
+import genetics.GenomeTable;
+
+/**
+ * handles a copy of the state of an environment at a single time, for display
+ * while the environment itself carries on simulating on another thread. A
+ * snapshot is never changed once created, so it can be read from any thread.
+ * 
+ * Columns of tiles that have not changed since the previous snapshot are
+ * shared with it rather than copied, so taking a snapshot costs in proportion
+ * to the tiles changed, and a view can skip any column it shares with the
+ * snapshot it last drew (see sharesColumn()).
+ * 
+ * @author danpr
+ *
+ */
+public class EnvironmentSnapshot {
+	private final PlantStore[][] TILES; // copy of the plants on each tile (by column, shared where unchanged)
+	private final PopulationStats STATS; // copy of the population statistics
+	private final int SIM_TIME; // time of the simulation when copied (time-steps)
+
+	/**
+	 * initialise as a copy of the given environment, copying only the tiles
+	 * changed since the previous snapshot and clearing them from the changed set.
+	 * Without a previous snapshot, only active tiles are copied, and the rest
+	 * share one empty store.
+	 * 
+	 * @param environment environment to copy
+	 * @param active      tiles that may hold plants
+	 * @param changed     tiles changed since the previous snapshot
+	 * @param previous    previous snapshot of the environment, or null if there
+	 *                    is none
+	 */
+	EnvironmentSnapshot(Environment environment, TileSet active, TileSet changed, EnvironmentSnapshot previous) {
+		GenomeTable genomes = new GenomeTable();
+		PlantStore empty = new PlantStore(genomes);
+		PlantStore[] emptyColumn = new PlantStore[environment.getHeight()];
+
+		Arrays.fill(emptyColumn, empty);
+		this.TILES = new PlantStore[environment.getWidth()][];
+		for (int i = 0; i < TILES.length; i++) {
+			if (previous == null) {
+				TILES[i] = active.isColumnEmpty(i) ? emptyColumn : emptyColumn.clone();
+				for (int j = active.next(i, 0); j >= 0; j = active.next(i, j + 1)) {
+					TILES[i][j] = environment.getPlants(i, j).copy(genomes);
+				}
+			} else if (changed.isColumnEmpty(i)) {
+				TILES[i] = previous.TILES[i];
+			} else {
+				TILES[i] = previous.TILES[i].clone();
+				for (int j = changed.next(i, 0); j >= 0; j = changed.next(i, j + 1)) {
+					TILES[i][j] = environment.getPlants(i, j).copy(genomes);
+				}
+			}
+			changed.clearColumn(i);
+		}
+		this.STATS = environment.getStats().copy();
+		this.SIM_TIME = environment.getSimTime();
+	}
+
+	/**
+	 * width getter (in tiles).
+	 * 
+	 * @return
+	 */
+	public int getWidth() {
+		return TILES.length;
+	}
+
+	/**
+	 * height getter (in tiles).
+	 * 
+	 * @return
+	 */
+	public int getHeight() {
+		return TILES[0].length;
+	}
+
+	/**
+	 * get the plants on the tile at the given grid reference (the returned store
+	 * must not be changed).
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public PlantStore getPlants(int x, int y) {
+		return TILES[x][y];
+	}
+
+	/**
+	 * check whether the given column of tiles is shared with the given snapshot,
+	 * in which case none of its tiles has changed between the two.
+	 * 
+	 * @param other
+	 * @param x
+	 * @return
+	 */
+	public boolean sharesColumn(EnvironmentSnapshot other, int x) {
+		return other != null && TILES[x] == other.TILES[x];
+	}
+
+	/**
+	 * population statistics getter.
+	 * 
+	 * @return
+	 */
+	public PopulationStats getStats() {
+		return STATS;
+	}
+
+	/**
+	 * simTime getter.
+	 * 
+	 * @return
+	 */
+	public int getSimTime() {
+		return SIM_TIME;
+	}
+}
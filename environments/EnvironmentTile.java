@@ -1,143 +1,127 @@
 package environments;
 
-import java.util.ArrayList;
-import java.util.Collections;
-
-import creatures.Creature;
 import creatures.Plant;
-import frontEnd.AppRoot;
-import javafx.scene.layout.StackPane;
+import creatures.PlantStore;
+import genetics.GenomeTable;
 
 /**
- * handles simulation and graphical appearance of a single tile of an
- * environment.
+ * handles simulation of a single tile of an environment.
  * 
  * @author danpr
  *
  */
-public class EnvironmentTile extends StackPane {
-	private static final int TILE_SIZE = 60; // graphical size of tile
-	private final AppRoot ROOT; // reference for program-wide access
-
-	private ArrayList<Creature> creatures = new ArrayList<Creature>(); // population of this tile
+public class EnvironmentTile {
+	private final GenomeTable GENOMES; // table the genomes of plants on this tile are stored in
+	private final Phylogeny LINEAGES; // ancestry of plants on this tile
+	private final Speciation SPECIES; // species of plants on this tile
+	private final PlantStore PLANTS; // population of this tile
 	private int x; // position in an environment
 	private int y; // ^
 
 	/**
 	 * initialise as an empty tile.
 	 * 
-	 * @param x    position in an environment
-	 * @param y    ^
-	 * @param root reference for program-wide access
+	 * @param x       position in an environment
+	 * @param y       ^
+	 * @param genomes  table the genomes of plants on this tile are stored in
+	 * @param lineages ancestry of plants on this tile
+	 * @param species  species of plants on this tile
+	 * @param version  version the plants on this tile start from (see
+	 *                 PlantStore)
 	 */
-	public EnvironmentTile(int x, int y, AppRoot root) {
-		super();
-		this.ROOT = root;
+	public EnvironmentTile(int x, int y, GenomeTable genomes, Phylogeny lineages, Speciation species, int version) {
 		this.x = x;
 		this.y = y;
-
-		this.setMinHeight(TILE_SIZE);
-		this.setMinWidth(TILE_SIZE);
+		this.GENOMES = genomes;
+		this.LINEAGES = lineages;
+		this.SPECIES = species;
+		this.PLANTS = new PlantStore(genomes, version);
 	}
 
 	/**
-	 * get a reference to each plant on this tile on order of size (largest to
-	 * shortest).
+	 * reuse this empty tile at another position of the same environment, keeping
+	 * the storage of its plants.
 	 * 
-	 * @return
+	 * @param x       position in the environment
+	 * @param y       ^
+	 * @param version version the plants on this tile start from (see
+	 *                PlantStore)
 	 */
-	public Plant[] getPlants() {
-		ArrayList<Plant> plants = new ArrayList<Plant>();
-		for (Creature creature : creatures) {
-			try {
-				plants.add((Plant) creature);
-			} catch (ClassCastException e) {
-			}
-		}
-		Collections.sort(plants);
-		Collections.reverse(plants);
-		return plants.toArray(new Plant[0]);
+	void reset(int x, int y, int version) {
+		this.x = x;
+		this.y = y;
+		PLANTS.reset(version);
 	}
 
 	/**
-	 * get a reference to each creature on this tile.
+	 * get the plants on this tile.
 	 * 
 	 * @return
 	 */
-	public Creature[] getCreatures() {
-		Creature[] temp = new Creature[creatures.size()];
-		for (int i = 0; i < creatures.size(); i++) {
-			temp[i] = creatures.get(i);
-		}
-		return temp;
+	public PlantStore getPlants() {
+		return PLANTS;
 	}
 
 	/**
-	 * refresh the graphical appearance of creatures on this tile.
-	 */
-	public void refresh() {
-		getChildren().clear();
-		for (int i = 0; i < Creature.MAX_SIZE; i++) {
-			for (Creature creature : creatures) {
-				if (creature.getSize() == i) {
-					creature.refresh();
-					getChildren().add(creature);
-					setAlignment(creature, creature.getPos());
-				}
-			}
-		}
-	}
-
-	/**
-	 * simulate each creature on this tile.
+	 * simulate each creature on this tile, timing photosynthesis and behaviour if
+	 * the context asks to.
 	 * 
-	 * @param environment environment this tile is part of
-	 * @param sunlight    amount of energy available to plants on this tile
+	 * @param context  handler of births and deaths for this tile
+	 * @param sunlight amount of energy available to plants on this tile
 	 */
-	public void simulateCreatures(Environment environment, float sunlight) {
-		photosynthesise(sunlight);
-		for (int i = 0; i < creatures.size(); i++) {
-			creatures.get(i).chooseBehaviour(environment, this);
+	public void simulateCreatures(StepContext context, float sunlight) {
+		long start;
+		long photosynthesised;
+
+		if (context.isTimed()) {
+			start = System.nanoTime();
+			photosynthesise(sunlight, context.getParameters());
+			photosynthesised = System.nanoTime();
+			Plant.chooseBehaviour(PLANTS, context, this);
+			context.addTimes(photosynthesised - start, System.nanoTime() - photosynthesised);
+		} else {
+			photosynthesise(sunlight, context.getParameters());
+			Plant.chooseBehaviour(PLANTS, context, this);
 		}
 	}
 
 	/**
 	 * kill all creatures on this tile.
-	 */
-	public void killCreatures() {
-		creatures.clear();
-	}
-
-	/**
-	 * allow each plant in order of size to absorb a portion of the available
-	 * sunlight as energy, with smaller plants having access to less because of the
-	 * larger plants absorbing some first.
 	 * 
-	 * @param photoEnergy total available sunlight hitting this tile
+	 * @param stats statistics to record the deaths in
 	 */
-	public void photosynthesise(float photoEnergy) {
-		Plant[] plants = getPlants(); // getPlants() returns in descending order of size
-		for (Plant plant : plants) {
-			photoEnergy = plant.photosynthesise(photoEnergy);
+	public void killCreatures(PopulationStats stats) {
+		for (int i = 0; i < PLANTS.getCount(); i++) {
+			stats.death(PLANTS.getSize(i), PLANTS.getGenome(i));
+			GENOMES.release(PLANTS.getGenomeId(i));
+			LINEAGES.release(PLANTS.getLineage(i));
+			SPECIES.release(PLANTS.getSpecies(i));
 		}
+		PLANTS.clear();
 	}
 
 	/**
-	 * add the given creature to this tile.
+	 * allow each plant in order of size to absorb a portion of the available
+	 * sunlight as energy.
 	 * 
-	 * @param creature
+	 * @param photoEnergy total available sunlight hitting this tile
+	 * @param parameters  constants of the simulation
 	 */
-	public void addCreature(Creature creature) {
-		creatures.add(creature);
+	public void photosynthesise(float photoEnergy, SimParameters parameters) {
+		Plant.photosynthesise(PLANTS, photoEnergy, parameters);
 	}
 
 	/**
-	 * remove the given creature from this tile.
+	 * add a newly created plant to this tile.
 	 * 
-	 * @param creature
+	 * @param plantId  unique id of the plant
+	 * @param genomeId id of the plant's genome
+	 * @param lineage  node of the plant in the environment's Phylogeny
+	 * @param species  slot of the plant's species in the environment's Speciation
+	 * @param size     initial size of the plant
 	 */
-	public void removeCreature(Creature creature) {
-		creatures.remove(creature);
+	public void addPlant(long plantId, int genomeId, int lineage, int species, int size) {
+		PLANTS.add(plantId, genomeId, lineage, species, size);
 	}
 
 	/**
@@ -157,4 +141,4 @@ public class EnvironmentTile extends StackPane {
 	public int getY() {
 		return y;
 	}
-}
\ No newline at end of file
+}
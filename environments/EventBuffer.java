@@ -0,0 +1,147 @@
+package environments;
+
+import java.util.Arrays;
+
+/**
+ * handles collection of simulation events as fixed size records of primitive
+ * values, ready to be handed to an EventLog as a single block. Each record is
+ * RECORD_LENGTH longs:
+ * 
+ * 0: type (top 8 bits), detail (next 24 bits), simTime (bottom 32 bits)
+ * 1: plant id (or -1 for a cull)
+ * 2: genome of a new plant (otherwise 0)
+ * 3: x (top 32 bits) and y (bottom 32 bits) of the tile involved
+ * 4: id of the parent of a new plant (-1 if it has none), otherwise 0
+ * 
+ * The detail is the size of a new or grown plant, the cause of a death, or the
+ * radius of a cull.
+ * 
+ * @author danpr
+ *
+ */
+public class EventBuffer {
+	public static final int RECORD_LENGTH = 5; // number of longs per event
+	public static final int BIRTH = 0; // event types
+	public static final int DEATH = 1; // ^
+	public static final int GROWTH = 2; // ^
+	public static final int CULL = 3; // ^
+	public static final int STARVED = 0; // causes of death
+	public static final int OLD_AGE = 1; // ^
+	public static final int CULLED = 2; // ^
+
+	private static final int INITIAL_CAPACITY = 1024; // number of events before the first enlargement
+
+	private long[] records = new long[INITIAL_CAPACITY * RECORD_LENGTH]; // event records, one after another
+	private int length = 0; // number of longs used
+
+	/**
+	 * record a plant being created.
+	 * 
+	 * @param simTime
+	 * @param plantId
+	 * @param parentId id of the parent plant, or -1 if it has none
+	 * @param genome
+	 * @param size
+	 * @param x        position of the tile the plant was placed on
+	 * @param y        ^
+	 */
+	public void birth(int simTime, long plantId, long parentId, long genome, int size, int x, int y) {
+		add(BIRTH, size, simTime, plantId, genome, x, y, parentId);
+	}
+
+	/**
+	 * record a plant dying.
+	 * 
+	 * @param simTime
+	 * @param plantId
+	 * @param cause   STARVED, OLD_AGE or CULLED
+	 * @param x       position of the tile the plant lived on
+	 * @param y       ^
+	 */
+	public void death(int simTime, long plantId, int cause, int x, int y) {
+		add(DEATH, cause, simTime, plantId, 0, x, y, 0);
+	}
+
+	/**
+	 * record a plant growing.
+	 * 
+	 * @param simTime
+	 * @param plantId
+	 * @param size    size after growing
+	 * @param x       position of the tile the plant lives on
+	 * @param y       ^
+	 */
+	public void growth(int simTime, long plantId, int size, int x, int y) {
+		add(GROWTH, size, simTime, plantId, 0, x, y, 0);
+	}
+
+	/**
+	 * record an area being culled (the deaths are recorded separately).
+	 * 
+	 * @param simTime
+	 * @param radius
+	 * @param x       position of the tile at the centre of the area
+	 * @param y       ^
+	 */
+	public void cull(int simTime, int radius, int x, int y) {
+		add(CULL, radius, simTime, -1, 0, x, y, 0);
+	}
+
+	/**
+	 * add a single record, enlarging the buffer if full.
+	 * 
+	 * @param type
+	 * @param detail
+	 * @param simTime
+	 * @param plantId
+	 * @param genome
+	 * @param x
+	 * @param y
+	 * @param parentId
+	 */
+	private void add(int type, int detail, int simTime, long plantId, long genome, int x, int y, long parentId) {
+		if (length + RECORD_LENGTH > records.length) {
+			records = Arrays.copyOf(records, records.length * 2);
+		}
+		records[length] = (long) type << 56 | (detail & 0xFFFFFFL) << 32 | (simTime & 0xFFFFFFFFL);
+		records[length + 1] = plantId;
+		records[length + 2] = genome;
+		records[length + 3] = (long) x << 32 | (y & 0xFFFFFFFFL);
+		records[length + 4] = parentId;
+		length += RECORD_LENGTH;
+	}
+
+	/**
+	 * forget every recorded event, keeping the space for reuse.
+	 */
+	public void clear() {
+		length = 0;
+	}
+
+	/**
+	 * check whether any events are recorded.
+	 * 
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return length == 0;
+	}
+
+	/**
+	 * records getter (only the first getLength() longs are events).
+	 * 
+	 * @return
+	 */
+	long[] getRecords() {
+		return records;
+	}
+
+	/**
+	 * length getter.
+	 * 
+	 * @return number of longs used
+	 */
+	int getLength() {
+		return length;
+	}
+}
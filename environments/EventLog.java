@@ -0,0 +1,198 @@
+package environments;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * handles writing simulation events to an append-only binary file on a thread
+ * of its own. The simulation hands over whole EventBuffers and is given empty
+ * ones back, so recording an event never waits for the file. Events are
+ * written in the order each time-step carries them out: culls, then the deaths
+ * and growth on each tile in column order, then births, which are held back
+ * until every tile has been simulated (see StepContext). This order does not
+ * depend on the number of threads.
+ * 
+ * The file holds a header of MAGIC, FORMAT_VERSION and RECORD_LENGTH (as ints),
+ * then every event record as longs (see EventBuffer).
+ * 
+ * @author danpr
+ *
+ */
+public class EventLog {
+	private static final int MAGIC = 0x45564C47; // marks an event log file ("EVLG")
+	private static final int FORMAT_VERSION = 1; // changed whenever the layout of the file changes
+	private static final int QUEUE_LENGTH = 64; // number of full buffers waiting before the simulation waits
+	private static final int WRITE_BYTES = 1 << 20; // size of each write to the file
+
+	private final FileChannel CHANNEL; // file being written
+	private final BlockingQueue<EventBuffer> FULL = new ArrayBlockingQueue<EventBuffer>(QUEUE_LENGTH); // to write
+	private final ConcurrentLinkedQueue<EventBuffer> EMPTY = new ConcurrentLinkedQueue<EventBuffer>(); // to reuse
+	private final EventBuffer END = new EventBuffer(); // marks the end of the log in FULL
+	private final Thread WRITER; // thread writing to the file
+
+	private volatile IOException error = null; // first error while writing (null if none)
+	private long nEvents = 0; // number of events handed over
+
+	/**
+	 * create (or replace) the log file and start writing to it.
+	 * 
+	 * @param path
+	 * @throws IOException
+	 */
+	public EventLog(Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(12);
+
+		CHANNEL = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(EventBuffer.RECORD_LENGTH).flip();
+		CHANNEL.write(header);
+
+		WRITER = new Thread(() -> writeAll(), "event-log");
+		WRITER.setDaemon(true);
+		WRITER.start();
+	}
+
+	/**
+	 * hand over a buffer of events to be written, getting an empty buffer in its
+	 * place. Waits only if the file has fallen QUEUE_LENGTH buffers behind.
+	 * 
+	 * @param events
+	 * @return empty buffer to record further events in
+	 */
+	public EventBuffer swap(EventBuffer events) {
+		EventBuffer empty;
+
+		if (events.isEmpty()) {
+			return events;
+		}
+		checkError();
+		nEvents += events.getLength() / EventBuffer.RECORD_LENGTH;
+		try {
+			FULL.put(events);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("event log interrupted");
+		}
+		empty = EMPTY.poll();
+		if (empty == null) {
+			empty = new EventBuffer();
+		}
+		return empty;
+	}
+
+	/**
+	 * get the number of events handed over so far.
+	 * 
+	 * @return
+	 */
+	public long getEventCount() {
+		return nEvents;
+	}
+
+	/**
+	 * write every event handed over so far, then close the file.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		try {
+			FULL.put(END);
+			WRITER.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("event log interrupted");
+		} finally {
+			CHANNEL.close();
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * throw the error that stopped the writer, if there was one.
+	 */
+	private void checkError() {
+		if (error != null) {
+			throw new RuntimeException("event log write error", error);
+		}
+	}
+
+	/**
+	 * write each buffer handed over, in order, until the end of the log. After an
+	 * error, buffers are still taken (and thrown away) so the simulation never
+	 * waits for a writer that has stopped.
+	 */
+	private void writeAll() {
+		ByteBuffer output = ByteBuffer.allocateDirect(WRITE_BYTES);
+		EventBuffer events;
+
+		try {
+			while ((events = FULL.take()) != END) {
+				if (error == null) {
+					try {
+						write(events, output);
+						if (FULL.isEmpty()) {
+							flush(output);
+						}
+					} catch (IOException e) {
+						error = e;
+					}
+				}
+				events.clear();
+				EMPTY.add(events);
+			}
+			if (error == null) {
+				flush(output);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+
+	/**
+	 * copy a buffer of events into the output, writing the output out whenever it
+	 * fills.
+	 * 
+	 * @param events
+	 * @param output
+	 * @throws IOException
+	 */
+	private void write(EventBuffer events, ByteBuffer output) throws IOException {
+		long[] records = events.getRecords();
+		int written = 0;
+		int n;
+
+		while (written < events.getLength()) {
+			n = Math.min(events.getLength() - written, output.remaining() / Long.BYTES);
+			output.asLongBuffer().put(records, written, n);
+			output.position(output.position() + n * Long.BYTES);
+			written += n;
+			if (!output.hasRemaining()) {
+				flush(output);
+			}
+		}
+	}
+
+	/**
+	 * write out everything in the given buffer.
+	 * 
+	 * @param output
+	 * @throws IOException
+	 */
+	private void flush(ByteBuffer output) throws IOException {
+		output.flip();
+		while (output.hasRemaining()) {
+			CHANNEL.write(output);
+		}
+		output.clear();
+	}
+}
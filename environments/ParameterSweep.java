@@ -0,0 +1,272 @@
+package environments;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * handles running many headless simulations over a grid of parameter values,
+ * for sensitivity analysis. Every combination of the varied parameters (see
+ * vary()) is run a number of times with different seeds, and the same seeds
+ * are used for every combination, so differences between combinations come
+ * from the parameters rather than the randomness.
+ * 
+ * Each run is a virtual thread, so hundreds of runs cost no more than their
+ * environments. The runs never block while simulating, so no more than one is
+ * ever mounted on each carrier thread, and a semaphore keeps the number in
+ * progress to the number of threads given (by default one per processor) so
+ * that environments are only built once there is a thread free to simulate
+ * them.
+ * 
+ * @author danpr
+ *
+ */
+public class ParameterSweep {
+	private final SimParameters BASE; // values of every parameter not varied
+
+	private ArrayList<String> names = new ArrayList<String>(); // names of the varied parameters
+	private ArrayList<float[]> values = new ArrayList<float[]>(); // values of each varied parameter
+
+	private int width = 22; // size of each environment (tiles)
+	private int height = 10; // ^
+	private int nClusters = 3; // number of clusters of plants to start with
+	private int clusterSize = 20; // number of plants per cluster
+	private int clusterRadius = 2; // radius of each cluster
+	private int killPeriod = 0; // number of time-steps between cullings (0 to never cull)
+	private int killRadius = 0; // radius of area to cull
+	private int steps = 10000; // number of time-steps to simulate each run for
+	private int replicates = 1; // number of runs of each combination of parameters
+	private long seed = 0; // seed of the first replicate of each combination (the next is seed + 1, and so on)
+	private int threads = Runtime.getRuntime().availableProcessors(); // max number of runs in progress at once
+
+	/**
+	 * initialise with no parameters varied.
+	 * 
+	 * @param base values of every parameter not varied
+	 */
+	public ParameterSweep(SimParameters base) {
+		this.BASE = base;
+	}
+
+	/**
+	 * run every combination of parameters with each of the given values of the
+	 * named parameter.
+	 * 
+	 * @param name   one of SimParameters.NAMES
+	 * @param values
+	 */
+	public void vary(String name, float[] values) {
+		SimParameters.indexOf(name);
+		if (values.length == 0) {
+			throw new IllegalArgumentException("no values for " + name);
+		}
+		if (names.contains(name)) {
+			this.values.set(names.indexOf(name), values.clone());
+		} else {
+			names.add(name);
+			this.values.add(values.clone());
+		}
+	}
+
+	/**
+	 * set the size of each environment.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * set the randomly generated population each environment starts with.
+	 * 
+	 * @param nClusters     number of clusters of plants
+	 * @param clusterSize   number of plants per cluster
+	 * @param clusterRadius radius of each cluster
+	 */
+	public void setClusters(int nClusters, int clusterSize, int clusterRadius) {
+		this.nClusters = nClusters;
+		this.clusterSize = clusterSize;
+		this.clusterRadius = clusterRadius;
+	}
+
+	/**
+	 * set the periodic cull of each environment.
+	 * 
+	 * @param killPeriod number of time-steps between cullings (0 to never cull)
+	 * @param killRadius radius of area to cull
+	 */
+	public void setCull(int killPeriod, int killRadius) {
+		this.killPeriod = killPeriod;
+		this.killRadius = killRadius;
+	}
+
+	/**
+	 * set the number of time-steps to simulate each run for.
+	 * 
+	 * @param steps
+	 */
+	public void setSteps(int steps) {
+		this.steps = steps;
+	}
+
+	/**
+	 * set the number of runs of each combination of parameters.
+	 * 
+	 * @param replicates
+	 */
+	public void setReplicates(int replicates) {
+		this.replicates = replicates;
+	}
+
+	/**
+	 * set the seed of the first replicate of each combination of parameters.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * set the max number of runs in progress at once.
+	 * 
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * list every combination of the varied parameters, with the first varied
+	 * parameter changing slowest.
+	 * 
+	 * @return
+	 */
+	public ArrayList<SimParameters> getGrid() {
+		ArrayList<SimParameters> grid = new ArrayList<SimParameters>();
+		ArrayList<SimParameters> next;
+
+		grid.add(BASE);
+		for (int i = 0; i < names.size(); i++) {
+			next = new ArrayList<SimParameters>();
+			for (SimParameters parameters : grid) {
+				for (float value : values.get(i)) {
+					next.add(parameters.with(names.get(i), value));
+				}
+			}
+			grid = next;
+		}
+		return grid;
+	}
+
+	/**
+	 * count the runs in the sweep.
+	 * 
+	 * @return
+	 */
+	public int getRunCount() {
+		int count = replicates;
+
+		for (float[] parameterValues : values) {
+			count *= parameterValues.length;
+		}
+		return count;
+	}
+
+	/**
+	 * simulate every run of the sweep, each on its own virtual thread. The first
+	 * run to fail cancels every other run, and its error is thrown straight away.
+	 * 
+	 * @return summary of each run, in order of getGrid() and then of replicate
+	 * @throws InterruptedException if interrupted while waiting for the runs
+	 */
+	public SweepResult[] run() throws InterruptedException {
+		ArrayList<SimParameters> grid = getGrid();
+		SweepResult[] results = new SweepResult[grid.size() * replicates];
+		ArrayList<Future<Void>> runs = new ArrayList<Future<Void>>();
+		Semaphore slots = new Semaphore(Math.max(threads, 1));
+		CompletionService<Void> finished;
+
+		if (width < 1 || height < 1 || steps < 0 || replicates < 1 || killPeriod < 0 || killRadius < 0) {
+			throw new IllegalArgumentException("sweep option out of range");
+		}
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			finished = new ExecutorCompletionService<Void>(executor);
+			for (int i = 0; i < results.length; i++) {
+				SimParameters parameters = grid.get(i / replicates);
+				int run = i;
+
+				runs.add(finished.submit(() -> {
+					slots.acquire();
+					try {
+						results[run] = runOne(parameters, run % replicates);
+						return null;
+					} finally {
+						slots.release();
+					}
+				}));
+			}
+			try {
+				for (int i = 0; i < results.length; i++) {
+					finished.take().get();
+				}
+			} catch (ExecutionException e) {
+				cancelAll(runs);
+				throw new RuntimeException("sweep run error", e.getCause());
+			} catch (InterruptedException e) {
+				cancelAll(runs);
+				throw e;
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * cancel every run that has not finished, interrupting those in progress.
+	 * 
+	 * @param runs
+	 */
+	private static void cancelAll(ArrayList<Future<Void>> runs) {
+		for (Future<Void> run : runs) {
+			run.cancel(true);
+		}
+	}
+
+	/**
+	 * simulate a single run, stopping early if the population dies out.
+	 * 
+	 * @param parameters
+	 * @param replicate
+	 * @return
+	 * @throws InterruptedException if the run is cancelled
+	 */
+	private SweepResult runOne(SimParameters parameters, int replicate) throws InterruptedException {
+		long start = System.nanoTime();
+		Environment environment = new Environment(width, height, nClusters, clusterSize, clusterRadius,
+				seed + replicate, parameters);
+		int peakPopulation = environment.getPopulation();
+		int emerged = environment.getSpeciation().getEmergedCount();
+		int extinct = 0;
+
+		environment.setPeriodicCull(killPeriod > 0, Math.max(killPeriod, 1), killRadius);
+		for (int i = 0; i < steps && environment.getPopulation() > 0; i++) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			environment.simulateSingle(1);
+			peakPopulation = Math.max(peakPopulation, environment.getPopulation());
+			emerged += environment.getSpeciation().getEmergedCount();
+			extinct += environment.getSpeciation().getExtinctCount();
+		}
+		return new SweepResult(parameters, replicate, environment, peakPopulation, emerged, extinct,
+				(System.nanoTime() - start) / 1000000);
+	}
+}
@@ -0,0 +1,419 @@
+package environments;
+
+import java.util.Arrays;
+
+/**
+ * handles the ancestry of every plant in an environment as a tree of parent
+ * pointers, so that the founder of a plant's lineage and the most recent
+ * common ancestor of two plants can be found. Each plant is given a node when
+ * it is born, which it keeps as its lineage id.
+ * 
+ * Only the ancestry of living plants is kept: a node is removed as soon as its
+ * plant has died and no living plant descends from it, and a dead node with a
+ * single line of descent is skipped over by its child. Every node kept is
+ * therefore a living plant, a founder, or an ancestor whose lineage has split,
+ * so the tree never holds more than twice as many nodes as there are living
+ * plants (plus founders), however many plants have been born. Generations are
+ * still counted in full.
+ * 
+ * @author danpr
+ *
+ */
+public class Phylogeny {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int FREE = -2; // parent of a node not in use
+
+	private long[] plantIds = new long[INITIAL_CAPACITY]; // id of the plant each node stands for
+	private int[] parents = new int[INITIAL_CAPACITY]; // nearest kept ancestor (-1 for a founder, FREE if not in use)
+	private int[] firstChildren = new int[INITIAL_CAPACITY]; // first kept descendant (-1 if none)
+	private int[] nextSiblings = new int[INITIAL_CAPACITY]; // next kept descendant of the same parent (-1 if none)
+	private int[] nChildren = new int[INITIAL_CAPACITY]; // number of kept descendants with this node as parent
+	private int[] birthTimes = new int[INITIAL_CAPACITY]; // time each plant was born (time-steps)
+	private int[] generations = new int[INITIAL_CAPACITY]; // number of generations since the founder
+	private boolean[] living = new boolean[INITIAL_CAPACITY]; // whether each plant is still alive
+	private int[] freeIds = new int[INITIAL_CAPACITY]; // nodes removed and available for reuse
+	private int nFree = 0; // number of nodes in freeIds
+	private int nextId = 0; // lowest node never yet used
+	private int size = 0; // number of nodes currently kept
+	private int nFounders = 0; // number of founders with living descendants (or alive themselves)
+
+	/**
+	 * add a node for a newly born plant.
+	 * 
+	 * @param plantId   id of the plant
+	 * @param parent    node of the plant's parent, or -1 for a founder
+	 * @param birthTime
+	 * @return node of the plant (its lineage id)
+	 */
+	public int add(long plantId, int parent, int birthTime) {
+		int node = allocate();
+
+		link(node, plantId, parent, birthTime, parent < 0 ? 0 : generations[parent] + 1, true);
+		return node;
+	}
+
+	/**
+	 * record the death of the plant of the given node, removing any ancestry that
+	 * no longer leads to a living plant.
+	 * 
+	 * @param node
+	 */
+	public void release(int node) {
+		living[node] = false;
+		prune(node);
+	}
+
+	/**
+	 * remove the given dead node if nothing descends from it, then each ancestor
+	 * left the same way, or skip over it if only one line descends from it.
+	 * 
+	 * @param node
+	 */
+	private void prune(int node) {
+		int parent;
+		int child;
+
+		while (node >= 0 && !living[node]) {
+			parent = parents[node];
+			if (nChildren[node] == 0) {
+				if (parent < 0) {
+					nFounders--;
+				} else {
+					unlink(node);
+				}
+				free(node);
+				node = parent;
+			} else if (nChildren[node] == 1 && parent >= 0) {
+				child = firstChildren[node];
+				replace(node, child);
+				parents[child] = parent;
+				free(node);
+				return;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * remove the given node from the descendants of its parent.
+	 * 
+	 * @param node
+	 */
+	private void unlink(int node) {
+		int parent = parents[node];
+		int sibling = firstChildren[parent];
+
+		if (sibling == node) {
+			firstChildren[parent] = nextSiblings[node];
+		} else {
+			while (nextSiblings[sibling] != node) {
+				sibling = nextSiblings[sibling];
+			}
+			nextSiblings[sibling] = nextSiblings[node];
+		}
+		nChildren[parent]--;
+	}
+
+	/**
+	 * put a node in the place of another among the descendants of its parent.
+	 * 
+	 * @param node        node being replaced
+	 * @param replacement
+	 */
+	private void replace(int node, int replacement) {
+		int parent = parents[node];
+		int sibling = firstChildren[parent];
+
+		nextSiblings[replacement] = nextSiblings[node];
+		if (sibling == node) {
+			firstChildren[parent] = replacement;
+		} else {
+			while (nextSiblings[sibling] != node) {
+				sibling = nextSiblings[sibling];
+			}
+			nextSiblings[sibling] = replacement;
+		}
+	}
+
+	/**
+	 * fill in a node and add it to the descendants of its parent.
+	 * 
+	 * @param node
+	 * @param plantId
+	 * @param parent
+	 * @param birthTime
+	 * @param generation
+	 * @param alive
+	 */
+	private void link(int node, long plantId, int parent, int birthTime, int generation, boolean alive) {
+		plantIds[node] = plantId;
+		parents[node] = parent;
+		birthTimes[node] = birthTime;
+		generations[node] = generation;
+		living[node] = alive;
+		if (parent < 0) {
+			nextSiblings[node] = -1;
+			nFounders++;
+		} else {
+			nextSiblings[node] = firstChildren[parent];
+			firstChildren[parent] = node;
+			nChildren[parent]++;
+		}
+		size++;
+	}
+
+	/**
+	 * take a node that is not in use, enlarging the tree if there are none.
+	 * 
+	 * @return
+	 */
+	private int allocate() {
+		int node;
+
+		if (nFree > 0) {
+			nFree--;
+			node = freeIds[nFree];
+		} else {
+			node = nextId;
+			nextId++;
+			ensureCapacity(nextId);
+		}
+		firstChildren[node] = -1;
+		nChildren[node] = 0;
+		return node;
+	}
+
+	/**
+	 * make the given node available for reuse.
+	 * 
+	 * @param node
+	 */
+	private void free(int node) {
+		if (nFree == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+		}
+		parents[node] = FREE;
+		freeIds[nFree] = node;
+		nFree++;
+		size--;
+	}
+
+	/**
+	 * enlarge the tree to hold at least the given number of nodes.
+	 * 
+	 * @param capacity
+	 */
+	private void ensureCapacity(int capacity) {
+		int length = plantIds.length;
+
+		if (capacity <= length) {
+			return;
+		}
+		while (length < capacity) {
+			length *= 2;
+		}
+		plantIds = Arrays.copyOf(plantIds, length);
+		parents = Arrays.copyOf(parents, length);
+		firstChildren = Arrays.copyOf(firstChildren, length);
+		nextSiblings = Arrays.copyOf(nextSiblings, length);
+		nChildren = Arrays.copyOf(nChildren, length);
+		birthTimes = Arrays.copyOf(birthTimes, length);
+		generations = Arrays.copyOf(generations, length);
+		living = Arrays.copyOf(living, length);
+	}
+
+	/**
+	 * find the founder of the lineage of the given node.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public int getFounder(int node) {
+		while (parents[node] >= 0) {
+			node = parents[node];
+		}
+		return node;
+	}
+
+	/**
+	 * list the kept ancestors of the given node, nearest first and ending with its
+	 * founder (see getGeneration() for how many generations separate each).
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public int[] getAncestors(int node) {
+		int[] ancestors = new int[8];
+		int n = 0;
+
+		for (int ancestor = parents[node]; ancestor >= 0; ancestor = parents[ancestor]) {
+			if (n == ancestors.length) {
+				ancestors = Arrays.copyOf(ancestors, n * 2);
+			}
+			ancestors[n] = ancestor;
+			n++;
+		}
+		return Arrays.copyOf(ancestors, n);
+	}
+
+	/**
+	 * find the most recent common ancestor of two nodes (which may be one of the
+	 * nodes itself).
+	 * 
+	 * @param a
+	 * @param b
+	 * @return node of the ancestor, or -1 if they have different founders
+	 */
+	public int getCommonAncestor(int a, int b) {
+		while (a != b) {
+			if (a < 0 || b < 0) {
+				return -1;
+			}
+			if (generations[a] >= generations[b]) {
+				a = parents[a];
+			} else {
+				b = parents[b];
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * plant id getter by node.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public long getPlantId(int node) {
+		return plantIds[node];
+	}
+
+	/**
+	 * get the nearest kept ancestor of the given node.
+	 * 
+	 * @param node
+	 * @return node of the ancestor, or -1 for a founder
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * birth time getter by node.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public int getBirthTime(int node) {
+		return birthTimes[node];
+	}
+
+	/**
+	 * get the number of generations between the given node and its founder.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public int getGeneration(int node) {
+		return generations[node];
+	}
+
+	/**
+	 * check whether the plant of the given node is still alive.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public boolean isLiving(int node) {
+		return living[node];
+	}
+
+	/**
+	 * check whether the given node is in use.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public boolean isUsed(int node) {
+		return node >= 0 && node < nextId && parents[node] != FREE;
+	}
+
+	/**
+	 * get the number of founders that are alive or have living descendants.
+	 * 
+	 * @return
+	 */
+	public int getFounderCount() {
+		return nFounders;
+	}
+
+	/**
+	 * counts the number of nodes currently kept.
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * get one more than the highest node that may be in use.
+	 * 
+	 * @return
+	 */
+	public int getLimit() {
+		return nextId;
+	}
+
+	/**
+	 * put back a node saved from another tree (see Checkpoint), in increasing
+	 * order of node. finishRestore() must be called once every node is restored.
+	 * 
+	 * @param node
+	 * @param plantId
+	 * @param parent
+	 * @param birthTime
+	 * @param generation
+	 * @param alive
+	 */
+	void restore(int node, long plantId, int parent, int birthTime, int generation, boolean alive) {
+		if (node < nextId || parent < -1) {
+			throw new RuntimeException("phylogeny restore error");
+		}
+		ensureCapacity(node + 1);
+		for (int i = nextId; i < node; i++) {
+			parents[i] = FREE;
+		}
+		nextId = node + 1;
+		plantIds[node] = plantId;
+		parents[node] = parent;
+		birthTimes[node] = birthTime;
+		generations[node] = generation;
+		living[node] = alive;
+	}
+
+	/**
+	 * link the restored nodes to their parents, and make the nodes skipped while
+	 * restoring available for reuse.
+	 */
+	void finishRestore() {
+		int parent;
+
+		for (int i = 0; i < nextId; i++) {
+			firstChildren[i] = -1;
+			nChildren[i] = 0;
+		}
+		for (int i = nextId - 1; i >= 0; i--) {
+			parent = parents[i];
+			if (parent == FREE) {
+				size++;
+				free(i);
+			} else if (parent >= 0 && !isUsed(parent)) {
+				throw new RuntimeException("phylogeny restore error");
+			} else {
+				link(i, plantIds[i], parent, birthTimes[i], generations[i], living[i]);
+			}
+		}
+	}
+}
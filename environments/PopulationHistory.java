@@ -0,0 +1,76 @@
+package environments;
+
+import genetics.GeneType;
+
+/**
+ * handles the history of a population's biomass and mean gene values, sampled
+ * every fixed number of time-steps by the thread simulating the environment
+ * (see Simulation), so the spacing of the history follows simulated time rather
+ * than how often it is drawn. Readers must hold the lock on the history while
+ * reading its series.
+ * 
+ * @author danpr
+ *
+ */
+public class PopulationHistory {
+	private static final GeneType[] GENE_TYPES = GeneType.values(); // cached to avoid copying values() on every sample
+
+	private final int PERIOD; // time-steps between samples
+	private final TimeSeries BIOMASS; // biomass at each sample
+	private final TimeSeries[] GENES = new TimeSeries[GENE_TYPES.length]; // mean magnitude at each sample (by gene)
+
+	/**
+	 * initialise as an empty history.
+	 * 
+	 * @param length number of time-steps to hold samples for
+	 * @param period time-steps between samples (at least 1)
+	 */
+	public PopulationHistory(int length, int period) {
+		if (period < 1) {
+			throw new IllegalArgumentException("history period out of range");
+		}
+		this.PERIOD = period;
+		this.BIOMASS = new TimeSeries(Math.max(length / period, 1));
+		for (int i = 0; i < GENES.length; i++) {
+			GENES[i] = new TimeSeries(BIOMASS.capacity());
+		}
+	}
+
+	/**
+	 * sample the given statistics if the given time is due a sample, there is a
+	 * population to sample and the time is not already sampled.
+	 * 
+	 * @param time  time of the statistics (time-steps)
+	 * @param stats
+	 */
+	public synchronized void sample(int time, PopulationStats stats) {
+		if (time % PERIOD != 0 || stats.getPopulation() == 0
+				|| (BIOMASS.size() > 0 && BIOMASS.getTime(BIOMASS.size() - 1) == time)) {
+			return;
+		}
+		BIOMASS.record(time, stats.getBiomass());
+		for (GeneType type : GENE_TYPES) {
+			GENES[type.ordinal()].record(time, stats.getGeneMagnitude(type));
+		}
+	}
+
+	/**
+	 * get the biomass history (hold the lock on this history while reading it).
+	 * 
+	 * @return
+	 */
+	public TimeSeries getBiomass() {
+		return BIOMASS;
+	}
+
+	/**
+	 * get the history of the mean magnitude of the given gene (hold the lock on
+	 * this history while reading it).
+	 * 
+	 * @param type
+	 * @return
+	 */
+	public TimeSeries getGene(GeneType type) {
+		return GENES[type.ordinal()];
+	}
+}
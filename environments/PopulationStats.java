@@ -0,0 +1,195 @@
+package environments;
+
+import creatures.Creature;
+import genetics.GeneType;
+import genetics.Genome;
+
+/**
+ * handles statistics of a population of plants, kept up to date by recording
+ * every birth, death and growth as it happens so that reading them never needs
+ * to visit the plants. Counts may go negative while recording only the changes
+ * made by part of a simulation (see StepContext), before being merged into the
+ * statistics of a whole environment.
+ * 
+ * @author danpr
+ *
+ */
+public class PopulationStats {
+	private static final GeneType[] GENE_TYPES = GeneType.values(); // cached to avoid copying values() on every event
+
+	private final int[] sizeCounts = new int[Creature.MAX_SIZE + 1]; // number of plants of each size
+	private final int[][] geneCounts = new int[GENE_TYPES.length][]; // number of plants with each step of each gene
+	private final long[] geneSums = new long[GENE_TYPES.length]; // total step of each gene over all plants
+	private long biomass = 0; // total size of all plants
+	private int population = 0; // number of plants
+
+	/**
+	 * initialise as the statistics of an empty population.
+	 */
+	public PopulationStats() {
+		for (GeneType type : GENE_TYPES) {
+			geneCounts[type.ordinal()] = new int[type.STEPS];
+		}
+	}
+
+	/**
+	 * record a plant being added to the population.
+	 * 
+	 * @param size
+	 * @param genome
+	 */
+	public void birth(int size, long genome) {
+		int step;
+
+		sizeCounts[size]++;
+		for (GeneType type : GENE_TYPES) {
+			step = Genome.getGeneStep(genome, type);
+			geneCounts[type.ordinal()][step]++;
+			geneSums[type.ordinal()] += step;
+		}
+		biomass += size;
+		population++;
+	}
+
+	/**
+	 * record a plant being removed from the population.
+	 * 
+	 * @param size
+	 * @param genome
+	 */
+	public void death(int size, long genome) {
+		int step;
+
+		sizeCounts[size]--;
+		for (GeneType type : GENE_TYPES) {
+			step = Genome.getGeneStep(genome, type);
+			geneCounts[type.ordinal()][step]--;
+			geneSums[type.ordinal()] -= step;
+		}
+		biomass -= size;
+		population--;
+	}
+
+	/**
+	 * record a plant growing by one from the given size.
+	 * 
+	 * @param size size before growing
+	 */
+	public void growth(int size) {
+		sizeCounts[size]--;
+		sizeCounts[size + 1]++;
+		biomass++;
+	}
+
+	/**
+	 * add the changes recorded by the given statistics to these, then reset the
+	 * given statistics.
+	 * 
+	 * @param changes
+	 */
+	public void merge(PopulationStats changes) {
+		add(changes);
+		changes.clear();
+	}
+
+	/**
+	 * create a copy of these statistics that is unaffected by later changes to
+	 * them.
+	 * 
+	 * @return
+	 */
+	public PopulationStats copy() {
+		PopulationStats copy = new PopulationStats();
+
+		copy.add(this);
+		return copy;
+	}
+
+	/**
+	 * add the given statistics to these.
+	 * 
+	 * @param changes
+	 */
+	private void add(PopulationStats changes) {
+		for (int i = 0; i < sizeCounts.length; i++) {
+			sizeCounts[i] += changes.sizeCounts[i];
+		}
+		for (int i = 0; i < geneCounts.length; i++) {
+			for (int j = 0; j < geneCounts[i].length; j++) {
+				geneCounts[i][j] += changes.geneCounts[i][j];
+			}
+			geneSums[i] += changes.geneSums[i];
+		}
+		biomass += changes.biomass;
+		population += changes.population;
+	}
+
+	/**
+	 * reset to the statistics of an empty population.
+	 */
+	public void clear() {
+		for (int i = 0; i < sizeCounts.length; i++) {
+			sizeCounts[i] = 0;
+		}
+		for (int i = 0; i < geneCounts.length; i++) {
+			for (int j = 0; j < geneCounts[i].length; j++) {
+				geneCounts[i][j] = 0;
+			}
+			geneSums[i] = 0;
+		}
+		biomass = 0;
+		population = 0;
+	}
+
+	/**
+	 * get the number of plants of the given size.
+	 * 
+	 * @param size
+	 * @return
+	 */
+	public int getSizeCount(int size) {
+		return sizeCounts[size];
+	}
+
+	/**
+	 * get the number of plants with the given step of a gene.
+	 * 
+	 * @param type
+	 * @param step
+	 * @return
+	 */
+	public int getGeneCount(GeneType type, int step) {
+		return geneCounts[type.ordinal()][step];
+	}
+
+	/**
+	 * get the average magnitude of a gene over all plants (see Genome).
+	 * 
+	 * @param type
+	 * @return average between 0 and 1, or 0 if there are no plants
+	 */
+	public float getGeneMagnitude(GeneType type) {
+		if (population == 0) {
+			return 0;
+		}
+		return (float) geneSums[type.ordinal()] / ((type.STEPS - 1) * (long) population);
+	}
+
+	/**
+	 * biomass getter.
+	 * 
+	 * @return total size of all plants
+	 */
+	public long getBiomass() {
+		return biomass;
+	}
+
+	/**
+	 * population getter.
+	 * 
+	 * @return number of plants
+	 */
+	public int getPopulation() {
+		return population;
+	}
+}
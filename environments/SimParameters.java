@@ -0,0 +1,165 @@
+package environments;
+
+/**
+ * handles the constants of the simulation that shape how plants live, so that
+ * each environment can be run with its own values (for example in a
+ * ParameterSweep) without recompiling. Parameters are never changed once
+ * created; with() gives a copy with a single value changed.
+ * 
+ * @author danpr
+ *
+ */
+public class SimParameters {
+	public static final String[] NAMES = { "sunlight", "photo-efficiency", "sustain-efficiency", "clone-efficiency",
+			"grow-efficiency", "seed-efficiency" }; // names of each parameter, in order of getValues()
+	public static final SimParameters DEFAULT = new SimParameters(200F, 0.2F, 0.2F, 20F, 0.005F, 2F);
+
+	private final float SUNLIGHT; // energy per tile per time-step available to plants
+	private final float PHOTO_EFFICIENCY; // fraction of light capturable during photosynthesis
+	private final float SUSTAIN_EFFICIENCY; // multiplier for cost of surviving the passing of time
+	private final float CLONE_EFFICIENCY; // multiplier for cost of creating offspring
+	private final float GROW_EFFICIENCY; // multiplier for cost of growing
+	private final float SEED_EFFICIENCY; // multiplier for cost of spreading seeds
+
+	/**
+	 * initialise with the given values, which must all be finite.
+	 * 
+	 * @param sunlight          energy per tile per time-step available to plants
+	 * @param photoEfficiency   fraction of light capturable during photosynthesis
+	 * @param sustainEfficiency multiplier for cost of surviving the passing of
+	 *                          time
+	 * @param cloneEfficiency   multiplier for cost of creating offspring
+	 * @param growEfficiency    multiplier for cost of growing
+	 * @param seedEfficiency    multiplier for cost of spreading seeds
+	 */
+	public SimParameters(float sunlight, float photoEfficiency, float sustainEfficiency, float cloneEfficiency,
+			float growEfficiency, float seedEfficiency) {
+		if (!Float.isFinite(sunlight) || !Float.isFinite(photoEfficiency) || !Float.isFinite(sustainEfficiency)
+				|| !Float.isFinite(cloneEfficiency) || !Float.isFinite(growEfficiency)
+				|| !Float.isFinite(seedEfficiency)) {
+			throw new IllegalArgumentException("parameter not finite");
+		}
+		if (sunlight < 0 || photoEfficiency < 0 || photoEfficiency > 1 || sustainEfficiency < 0
+				|| cloneEfficiency < 0 || growEfficiency < 0 || seedEfficiency < 0) {
+			throw new IllegalArgumentException("parameter out of range");
+		}
+		this.SUNLIGHT = sunlight;
+		this.PHOTO_EFFICIENCY = photoEfficiency;
+		this.SUSTAIN_EFFICIENCY = sustainEfficiency;
+		this.CLONE_EFFICIENCY = cloneEfficiency;
+		this.GROW_EFFICIENCY = growEfficiency;
+		this.SEED_EFFICIENCY = seedEfficiency;
+	}
+
+	/**
+	 * initialise with the values in order of NAMES.
+	 * 
+	 * @param values
+	 */
+	private SimParameters(float[] values) {
+		this(values[0], values[1], values[2], values[3], values[4], values[5]);
+	}
+
+	/**
+	 * sunlight getter.
+	 * 
+	 * @return
+	 */
+	public float getSunlight() {
+		return SUNLIGHT;
+	}
+
+	/**
+	 * photosynthesis efficiency getter.
+	 * 
+	 * @return
+	 */
+	public float getPhotoEfficiency() {
+		return PHOTO_EFFICIENCY;
+	}
+
+	/**
+	 * sustain efficiency getter.
+	 * 
+	 * @return
+	 */
+	public float getSustainEfficiency() {
+		return SUSTAIN_EFFICIENCY;
+	}
+
+	/**
+	 * clone efficiency getter.
+	 * 
+	 * @return
+	 */
+	public float getCloneEfficiency() {
+		return CLONE_EFFICIENCY;
+	}
+
+	/**
+	 * grow efficiency getter.
+	 * 
+	 * @return
+	 */
+	public float getGrowEfficiency() {
+		return GROW_EFFICIENCY;
+	}
+
+	/**
+	 * seed efficiency getter.
+	 * 
+	 * @return
+	 */
+	public float getSeedEfficiency() {
+		return SEED_EFFICIENCY;
+	}
+
+	/**
+	 * get every value, in order of NAMES.
+	 * 
+	 * @return
+	 */
+	public float[] getValues() {
+		return new float[] { SUNLIGHT, PHOTO_EFFICIENCY, SUSTAIN_EFFICIENCY, CLONE_EFFICIENCY, GROW_EFFICIENCY,
+				SEED_EFFICIENCY };
+	}
+
+	/**
+	 * get the value of the parameter with the given name.
+	 * 
+	 * @param name one of NAMES
+	 * @return
+	 */
+	public float get(String name) {
+		return getValues()[indexOf(name)];
+	}
+
+	/**
+	 * copy these parameters with the value of one changed.
+	 * 
+	 * @param name  one of NAMES
+	 * @param value
+	 * @return
+	 */
+	public SimParameters with(String name, float value) {
+		float[] values = getValues();
+
+		values[indexOf(name)] = value;
+		return new SimParameters(values);
+	}
+
+	/**
+	 * find the position of the parameter with the given name in NAMES.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public static int indexOf(String name) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("unknown parameter " + name);
+	}
+}
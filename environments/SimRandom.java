@@ -0,0 +1,120 @@
+package environments;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * handles generation of random numbers for the simulation. Each SimRandom is a
+ * stream of numbers fully determined by its seed (SplitMix64), so a simulation
+ * can be repeated exactly from a single seed. Independent streams can be split
+ * off for workers, or derived for each tile and time-step without any shared
+ * state.
+ * 
+ * @author danpr
+ *
+ */
+public final class SimRandom {
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // increment between states
+	private static final long STREAM_GAMMA = 0xD1B54A32D192ED03L; // multiplier separating derived streams
+	private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(); // separates seeds generated at the same time
+
+	private long state; // current position in the stream
+
+	/**
+	 * initialise a stream with the given seed.
+	 * 
+	 * @param seed
+	 */
+	public SimRandom(long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * generate a seed that differs between runs, for when no seed is given.
+	 * 
+	 * @return
+	 */
+	public static long randomSeed() {
+		return mix(System.nanoTime() ^ SEED_UNIQUIFIER.addAndGet(GOLDEN_GAMMA));
+	}
+
+	/**
+	 * scramble the bits of the given value.
+	 * 
+	 * @param z
+	 * @return
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * calculate the seed of an independent stream identified by two numbers (such
+	 * as the position of a tile) within the given seed.
+	 * 
+	 * @param seed
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static long stream(long seed, int a, int b) {
+		return mix(seed + mix(((long) a << 32 | (b & 0xFFFFFFFFL)) * STREAM_GAMMA));
+	}
+
+	/**
+	 * move to the start of the stream with the given seed.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * state getter (passing it to setSeed resumes the stream from this point).
+	 * 
+	 * @return
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * create a new stream independent of this one, advancing this one.
+	 * 
+	 * @return
+	 */
+	public SimRandom split() {
+		return new SimRandom(mix(nextLong()));
+	}
+
+	/**
+	 * generate a random long.
+	 * 
+	 * @return
+	 */
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	/**
+	 * generate a random int between 0 (inclusive) and bound (exclusive).
+	 * 
+	 * @param bound
+	 * @return
+	 */
+	public int nextInt(int bound) {
+		return (int) (((nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * generate a random float between 0 (inclusive) and 1 (exclusive).
+	 * 
+	 * @return
+	 */
+	public float nextFloat() {
+		return (nextLong() >>> 40) * 0x1.0p-24F;
+	}
+}
@@ -0,0 +1,325 @@
+package environments;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * handles running the simulation of an environment on a shared scheduler (see
+ * SimulationScheduler), so that the cost of a time-step never holds up the
+ * graphical interface and many environments can be simulated side by side.
+ * Changes to the environment are submitted as commands and carried out between
+ * time-steps, and the state of the environment is published as snapshots for
+ * the interface to draw at its own rate.
+ * 
+ * @author danpr
+ *
+ */
+public class Simulation {
+	private static final long PUBLISH_PERIOD = 16; // minimum milliseconds between snapshots while simulating
+	private static final long SLICE_TIME = 10; // max milliseconds to simulate for before letting others take a turn
+	private static final int HISTORY_LENGTH = 5000; // number of time-steps to keep the population history for
+	private static final int HISTORY_PERIOD = 1; // time-steps between samples of the population history
+	private static final AtomicInteger NEXT_NUMBER = new AtomicInteger(); // number to give the next simulation
+
+	private final Environment ENVIRONMENT; // environment being simulated
+	private final SimulationScheduler SCHEDULER; // scheduler taking turns of this and other simulations
+	private final long BATCH_PERIOD; // milliseconds between batches when simulating continuously
+	private final int NUMBER; // distinguishes this simulation from others in the same program
+	private final ConcurrentLinkedQueue<Runnable> COMMANDS = new ConcurrentLinkedQueue<Runnable>(); // waiting changes
+	private final PopulationHistory HISTORY = new PopulationHistory(HISTORY_LENGTH, HISTORY_PERIOD); // sampled stats
+
+	private volatile EnvironmentSnapshot snapshot; // most recently published state of the environment
+	private boolean changed = false; // whether the environment has changed since the last snapshot
+	private long lastPublish = 0; // time of the last snapshot (milliseconds)
+
+	private int pendingSteps = 0; // number of single time-steps requested but not yet simulated
+	private int speed = 0; // number of time-steps per batch when simulating continuously (0 to stop)
+	private int batchSteps = 0; // number of time-steps left in the current continuous batch
+	private long nextBatch = 0; // time to start the next continuous batch (milliseconds)
+	private volatile boolean running = true; // false once asked to stop
+	private volatile RuntimeException failure = null; // error that stopped the simulation, if any
+
+	private int state = SimulationScheduler.IDLE; // state in the scheduler (guarded by the scheduler)
+	private boolean woken = false; // whether woken while taking a turn (^)
+	private long wakeTime = 0; // time of the next continuous batch while waiting for it (^)
+
+	/**
+	 * initialise as the simulation of the given environment, publishing its
+	 * current state straight away.
+	 * 
+	 * @param environment environment to simulate
+	 * @param batchPeriod milliseconds between batches when simulating
+	 *                    continuously
+	 * @param scheduler   scheduler to take turns on
+	 */
+	public Simulation(Environment environment, long batchPeriod, SimulationScheduler scheduler) {
+		this.ENVIRONMENT = environment;
+		this.SCHEDULER = scheduler;
+		this.BATCH_PERIOD = batchPeriod;
+		this.NUMBER = NEXT_NUMBER.getAndIncrement();
+		this.snapshot = environment.snapshot();
+		HISTORY.sample(environment.getSimTime(), environment.getStats());
+	}
+
+	/**
+	 * environment getter (the environment may only be changed by submitted
+	 * commands).
+	 * 
+	 * @return
+	 */
+	public Environment getEnvironment() {
+		return ENVIRONMENT;
+	}
+
+	/**
+	 * number getter.
+	 * 
+	 * @return
+	 */
+	public int getNumber() {
+		return NUMBER;
+	}
+
+	/**
+	 * get the most recently published state of the environment.
+	 * 
+	 * @return
+	 */
+	public EnvironmentSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * get the history of the population, sampled every HISTORY_PERIOD
+	 * time-steps as they are simulated.
+	 * 
+	 * @return
+	 */
+	public PopulationHistory getHistory() {
+		return HISTORY;
+	}
+
+	/**
+	 * get the error that stopped the simulation during a turn.
+	 * 
+	 * @return null if the simulation has not failed
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * make the environment's metrics readable through JMX, ready to simulate.
+	 */
+	public void start() {
+		ENVIRONMENT.getMetrics().register("simulation-" + NUMBER);
+	}
+
+	/**
+	 * request a number of time-steps to be simulated as soon as possible.
+	 * 
+	 * @param steps
+	 */
+	public void step(int steps) {
+		synchronized (this) {
+			pendingSteps += steps;
+		}
+		SCHEDULER.wake(this);
+	}
+
+	/**
+	 * set the number of time-steps to simulate in each continuous batch.
+	 * 
+	 * @param speed time-steps per batch, or 0 to stop simulating continuously
+	 */
+	public void setSpeed(int speed) {
+		synchronized (this) {
+			if (this.speed == 0 && speed > 0) {
+				nextBatch = System.currentTimeMillis();
+			}
+			if (speed == 0) {
+				batchSteps = 0;
+			}
+			this.speed = speed;
+		}
+		SCHEDULER.wake(this);
+	}
+
+	/**
+	 * carry out a change to the environment between time-steps, on whichever
+	 * worker takes the next turn.
+	 * 
+	 * @param command
+	 */
+	public void submit(Runnable command) {
+		COMMANDS.add(command);
+		SCHEDULER.wake(this);
+	}
+
+	/**
+	 * stop simulating once the current time-step has finished.
+	 */
+	public void shutdown() {
+		running = false;
+		SCHEDULER.remove(this);
+		ENVIRONMENT.getMetrics().unregister();
+	}
+
+	/**
+	 * carry out waiting commands and simulate requested time-steps and continuous
+	 * batches for up to SLICE_TIME milliseconds, publishing snapshots at most
+	 * every PUBLISH_PERIOD milliseconds.
+	 * 
+	 * @return 0 if there is more to do straight away, the time of the next
+	 *         continuous batch if waiting for it, or -1 if there is nothing to do
+	 */
+	long takeTurn() {
+		long end = System.currentTimeMillis() + SLICE_TIME;
+
+		do {
+			runCommands();
+			if (!running || !takeStep()) {
+				break;
+			}
+			ENVIRONMENT.simulateSingle(1);
+			HISTORY.sample(ENVIRONMENT.getSimTime(), ENVIRONMENT.getStats());
+			changed = true;
+			if (System.currentTimeMillis() - lastPublish >= PUBLISH_PERIOD) {
+				publish();
+			}
+		} while (System.currentTimeMillis() < end);
+
+		synchronized (this) {
+			if (!running) {
+				return -1;
+			}
+			if (pendingSteps > 0 || batchSteps > 0 || !COMMANDS.isEmpty()) {
+				return 0;
+			}
+		}
+		publish();
+		synchronized (this) {
+			return speed > 0 ? nextBatch : -1;
+		}
+	}
+
+	/**
+	 * take the next time-step to simulate, from the requested time-steps or the
+	 * current continuous batch (starting the next batch if due).
+	 * 
+	 * @return false if there is none
+	 */
+	private synchronized boolean takeStep() {
+		long now;
+
+		if (pendingSteps > 0) {
+			pendingSteps--;
+			return true;
+		}
+		if (batchSteps == 0 && speed > 0) {
+			now = System.currentTimeMillis();
+			if (now >= nextBatch) {
+				batchSteps = speed;
+				nextBatch += BATCH_PERIOD;
+				if (nextBatch < now) {
+					nextBatch = now + BATCH_PERIOD;
+				}
+			}
+		}
+		if (batchSteps > 0) {
+			batchSteps--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * carry out every waiting command.
+	 */
+	private void runCommands() {
+		Runnable command;
+
+		while ((command = COMMANDS.poll()) != null) {
+			command.run();
+			changed = true;
+		}
+	}
+
+	/**
+	 * publish the current state of the environment, if it has changed.
+	 */
+	private void publish() {
+		long start;
+
+		if (changed) {
+			start = System.nanoTime();
+			snapshot = ENVIRONMENT.snapshot();
+			ENVIRONMENT.getMetrics().record(StepPhase.SNAPSHOT, System.nanoTime() - start);
+			changed = false;
+			lastPublish = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * failure setter.
+	 * 
+	 * @param failure
+	 */
+	void setFailure(RuntimeException failure) {
+		this.failure = failure;
+	}
+
+	/**
+	 * state getter (see SimulationScheduler).
+	 * 
+	 * @return
+	 */
+	int getState() {
+		return state;
+	}
+
+	/**
+	 * state setter (see SimulationScheduler).
+	 * 
+	 * @param state
+	 */
+	void setState(int state) {
+		this.state = state;
+	}
+
+	/**
+	 * check whether woken while taking a turn.
+	 * 
+	 * @return
+	 */
+	boolean isWoken() {
+		return woken;
+	}
+
+	/**
+	 * woken setter.
+	 * 
+	 * @param woken
+	 */
+	void setWoken(boolean woken) {
+		this.woken = woken;
+	}
+
+	/**
+	 * wake time getter.
+	 * 
+	 * @return
+	 */
+	long getWakeTime() {
+		return wakeTime;
+	}
+
+	/**
+	 * wake time setter.
+	 * 
+	 * @param wakeTime
+	 */
+	void setWakeTime(long wakeTime) {
+		this.wakeTime = wakeTime;
+	}
+}
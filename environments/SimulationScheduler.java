@@ -0,0 +1,192 @@
+package environments;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+/**
+ * handles running the simulations of any number of environments on a shared,
+ * fixed set of worker threads, so that opening more environments never means
+ * more threads than the machine can run at once. Simulations take turns in
+ * round-robin order: each turn simulates for at most a slice of time before
+ * the simulation goes to the back of the queue, so a long batch of time-steps
+ * in one environment never starves the others. A simulation is only ever run
+ * by one worker at a time.
+ * 
+ * @author danpr
+ *
+ */
+public class SimulationScheduler {
+	static final int IDLE = 0; // states of a simulation: nothing to do until asked
+	static final int WAITING = 1; // ^ nothing to do until its next continuous batch
+	static final int READY = 2; // ^ queued for a turn
+	static final int RUNNING = 3; // ^ taking a turn on a worker
+	static final int FAILED = 4; // ^ stopped by an error during a turn, never given another
+
+	private final Thread[] WORKERS; // threads taking turns of simulations
+	private final ArrayDeque<Simulation> READY_QUEUE = new ArrayDeque<Simulation>(); // simulations queued for a turn
+	private final PriorityQueue<Simulation> WAITING_QUEUE = new PriorityQueue<Simulation>(
+			(Simulation a, Simulation b) -> Long.compare(a.getWakeTime(), b.getWakeTime())); // ^ by next batch
+
+	private boolean running = true; // false once shut down
+
+	/**
+	 * initialise with one worker for each processor available.
+	 */
+	public SimulationScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * initialise with the given number of workers.
+	 * 
+	 * @param threads
+	 */
+	public SimulationScheduler(int threads) {
+		WORKERS = new Thread[Math.max(threads, 1)];
+		for (int i = 0; i < WORKERS.length; i++) {
+			WORKERS[i] = new Thread(this::work, "simulation-worker-" + i);
+			WORKERS[i].setDaemon(true);
+			WORKERS[i].start();
+		}
+	}
+
+	/**
+	 * get the number of worker threads.
+	 * 
+	 * @return
+	 */
+	public int getThreads() {
+		return WORKERS.length;
+	}
+
+	/**
+	 * queue the given simulation for a turn, as it has something to do. A
+	 * simulation woken while taking a turn is queued again once the turn ends.
+	 * 
+	 * @param simulation
+	 */
+	synchronized void wake(Simulation simulation) {
+		switch (simulation.getState()) {
+		case RUNNING:
+			simulation.setWoken(true);
+			break;
+		case WAITING:
+			WAITING_QUEUE.remove(simulation);
+			makeReady(simulation);
+			break;
+		case IDLE:
+			makeReady(simulation);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * queue the given simulation for a turn, waking a worker to take it.
+	 * 
+	 * @param simulation
+	 */
+	private void makeReady(Simulation simulation) {
+		simulation.setState(READY);
+		READY_QUEUE.add(simulation);
+		notify();
+	}
+
+	/**
+	 * stop giving the given simulation turns (a turn in progress is left to
+	 * finish).
+	 * 
+	 * @param simulation
+	 */
+	synchronized void remove(Simulation simulation) {
+		if (simulation.getState() == READY) {
+			READY_QUEUE.remove(simulation);
+			simulation.setState(IDLE);
+		} else if (simulation.getState() == WAITING) {
+			WAITING_QUEUE.remove(simulation);
+			simulation.setState(IDLE);
+		}
+	}
+
+	/**
+	 * stop every worker once its current turn has finished.
+	 */
+	public synchronized void shutdown() {
+		running = false;
+		notifyAll();
+	}
+
+	/**
+	 * take turns of queued simulations until shut down. A simulation whose turn
+	 * fails is reported and given no more turns, while the worker carries on
+	 * with the others.
+	 */
+	private void work() {
+		Simulation simulation;
+		long wakeTime;
+
+		while ((simulation = next()) != null) {
+			try {
+				wakeTime = simulation.takeTurn();
+			} catch (RuntimeException e) {
+				simulation.setFailure(e);
+				System.err.println("simulation " + simulation.getNumber() + " error: " + e);
+				e.printStackTrace();
+				synchronized (this) {
+					simulation.setState(FAILED);
+					simulation.setWoken(false);
+				}
+				continue;
+			}
+			synchronized (this) {
+				if (simulation.isWoken() || wakeTime == 0) {
+					makeReady(simulation);
+				} else if (wakeTime > 0) {
+					simulation.setState(WAITING);
+					simulation.setWakeTime(wakeTime);
+					WAITING_QUEUE.add(simulation);
+					notify();
+				} else {
+					simulation.setState(IDLE);
+				}
+				simulation.setWoken(false);
+			}
+		}
+	}
+
+	/**
+	 * wait for a simulation to be due a turn, and take it off the queue.
+	 * 
+	 * @return null if shut down
+	 */
+	private synchronized Simulation next() {
+		Simulation simulation;
+		long wait;
+
+		while (running) {
+			while (!WAITING_QUEUE.isEmpty() && WAITING_QUEUE.peek().getWakeTime() <= System.currentTimeMillis()) {
+				simulation = WAITING_QUEUE.poll();
+				simulation.setState(READY);
+				READY_QUEUE.add(simulation);
+			}
+			if (!READY_QUEUE.isEmpty()) {
+				simulation = READY_QUEUE.poll();
+				simulation.setState(RUNNING);
+				simulation.setWoken(false);
+				return simulation;
+			}
+			if (WAITING_QUEUE.isEmpty()) {
+				wait = 0;
+			} else {
+				wait = Math.max(WAITING_QUEUE.peek().getWakeTime() - System.currentTimeMillis(), 1);
+			}
+			try {
+				wait(wait);
+			} catch (InterruptedException e) {
+				running = false;
+			}
+		}
+		return null;
+	}
+}
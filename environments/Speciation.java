@@ -0,0 +1,363 @@
+package environments;
+
+import java.util.Arrays;
+
+import genetics.Genome;
+
+/**
+ * handles grouping the plants of an environment into species as they are born
+ * and die, without ever re-clustering the whole population. Each species is
+ * led by the genome of its first member. A newborn plant joins the species of
+ * its parent if still within the threshold of that species' leader (see
+ * Genome.distance()), otherwise the species whose leader is nearest its
+ * genome, or founds a new species if no leader is within the threshold. A
+ * species is extinct once its last member dies.
+ * 
+ * Species are stored by slot, which is reused after extinction, and each also
+ * has a unique id. Species that emerged or went extinct are listed until the
+ * start of the next time-step.
+ * 
+ * @author danpr
+ *
+ */
+public class Speciation {
+	public static final float DEFAULT_THRESHOLD = 1F; // max distance from a leader to join its species
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int CACHE_SIZE = 1 << 14; // number of genomes remembered with their species (power of 2)
+
+	private final float THRESHOLD; // max distance from a leader to join its species
+
+	private long[] ids = new long[INITIAL_CAPACITY]; // unique id of each species by slot (-1 if not in use)
+	private long[] leaders = new long[INITIAL_CAPACITY]; // genome of the first member of each species
+	private int[] sizes = new int[INITIAL_CAPACITY]; // number of living members of each species
+	private int[] emergeTimes = new int[INITIAL_CAPACITY]; // time each species emerged (time-steps)
+	private int[] freeSlots = new int[INITIAL_CAPACITY]; // slots available for reuse
+	private int nFree = 0; // number of slots in freeSlots
+	private int nextSlot = 0; // lowest slot never yet used
+	private int nSpecies = 0; // number of living species
+	private long nextId = 0; // id to give the next species to emerge
+
+	private long[] cacheGenomes = new long[CACHE_SIZE]; // recently joined genomes
+	private long[] cacheIds = new long[CACHE_SIZE]; // ^ id of the species they joined (-1 if empty)
+	private int[] cacheSlots = new int[CACHE_SIZE]; // ^ slot of that species
+
+	private long[] emerged = new long[INITIAL_CAPACITY]; // ids of species that emerged this time-step
+	private int nEmerged = 0; // ^
+	private long[] extinct = new long[INITIAL_CAPACITY]; // ids of species that went extinct this time-step
+	private int nExtinct = 0; // ^
+
+	/**
+	 * initialise with no species, using the default threshold.
+	 */
+	public Speciation() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * initialise with no species.
+	 * 
+	 * @param threshold max distance from a leader to join its species
+	 */
+	public Speciation(float threshold) {
+		this.THRESHOLD = threshold;
+		Arrays.fill(cacheIds, -1);
+	}
+
+	/**
+	 * add a newly born plant to the species of its parent, or the species nearest
+	 * its genome, or a new species if none is near enough.
+	 * 
+	 * @param genome
+	 * @param parentSpecies slot of the species of the plant's parent (-1 if none)
+	 * @param simTime       current time of the simulation
+	 * @return slot of the species joined
+	 */
+	public int add(long genome, int parentSpecies, int simTime) {
+		int cache = cacheIndex(genome);
+		int slot = -1;
+		float nearest = THRESHOLD;
+		float distance;
+
+		if (isUsed(parentSpecies) && Genome.distance(genome, leaders[parentSpecies]) <= THRESHOLD) {
+			slot = parentSpecies;
+		} else if (cacheIds[cache] >= 0 && cacheGenomes[cache] == genome && ids[cacheSlots[cache]] == cacheIds[cache]) {
+			slot = cacheSlots[cache];
+		} else {
+			for (int i = 0; i < nextSlot; i++) {
+				if (ids[i] >= 0) {
+					distance = Genome.distance(genome, leaders[i]);
+					if (distance <= nearest) {
+						nearest = distance;
+						slot = i;
+					}
+				}
+			}
+			if (slot < 0) {
+				slot = emerge(genome, simTime);
+			}
+			cacheGenomes[cache] = genome;
+			cacheIds[cache] = ids[slot];
+			cacheSlots[cache] = slot;
+		}
+		sizes[slot]++;
+		return slot;
+	}
+
+	/**
+	 * record the death of a member of the species in the given slot, which goes
+	 * extinct if it was the last.
+	 * 
+	 * @param slot
+	 */
+	public void release(int slot) {
+		sizes[slot]--;
+		if (sizes[slot] == 0) {
+			if (nExtinct == extinct.length) {
+				extinct = Arrays.copyOf(extinct, nExtinct * 2);
+			}
+			extinct[nExtinct] = ids[slot];
+			nExtinct++;
+			ids[slot] = -1;
+			if (nFree == freeSlots.length) {
+				freeSlots = Arrays.copyOf(freeSlots, nFree * 2);
+			}
+			freeSlots[nFree] = slot;
+			nFree++;
+			nSpecies--;
+		}
+	}
+
+	/**
+	 * forget the species that emerged or went extinct, at the start of a new
+	 * time-step.
+	 */
+	public void nextStep() {
+		nEmerged = 0;
+		nExtinct = 0;
+	}
+
+	/**
+	 * create a new species led by the given genome.
+	 * 
+	 * @param genome
+	 * @param simTime
+	 * @return slot of the species
+	 */
+	private int emerge(long genome, int simTime) {
+		int slot = takeSlot();
+
+		ids[slot] = nextId;
+		leaders[slot] = genome;
+		sizes[slot] = 0;
+		emergeTimes[slot] = simTime;
+		nSpecies++;
+		if (nEmerged == emerged.length) {
+			emerged = Arrays.copyOf(emerged, nEmerged * 2);
+		}
+		emerged[nEmerged] = nextId;
+		nEmerged++;
+		nextId++;
+		return slot;
+	}
+
+	/**
+	 * take a slot that is not in use, enlarging the table if there are none.
+	 * 
+	 * @return
+	 */
+	private int takeSlot() {
+		if (nFree > 0) {
+			nFree--;
+			return freeSlots[nFree];
+		}
+		if (nextSlot == ids.length) {
+			ids = Arrays.copyOf(ids, nextSlot * 2);
+			leaders = Arrays.copyOf(leaders, nextSlot * 2);
+			sizes = Arrays.copyOf(sizes, nextSlot * 2);
+			emergeTimes = Arrays.copyOf(emergeTimes, nextSlot * 2);
+		}
+		nextSlot++;
+		return nextSlot - 1;
+	}
+
+	/**
+	 * get the position in the cache of the given genome.
+	 * 
+	 * @param genome
+	 * @return
+	 */
+	private static int cacheIndex(long genome) {
+		long hash = genome * 0x9E3779B97F4A7C15L;
+
+		return (int) (hash >>> 32) & (CACHE_SIZE - 1);
+	}
+
+	/**
+	 * count the number of living species.
+	 * 
+	 * @return
+	 */
+	public int getCount() {
+		return nSpecies;
+	}
+
+	/**
+	 * get one more than the highest slot that may be in use.
+	 * 
+	 * @return
+	 */
+	public int getLimit() {
+		return nextSlot;
+	}
+
+	/**
+	 * check whether the given slot holds a living species.
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public boolean isUsed(int slot) {
+		return slot >= 0 && slot < nextSlot && ids[slot] >= 0;
+	}
+
+	/**
+	 * id getter by slot.
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public long getId(int slot) {
+		return ids[slot];
+	}
+
+	/**
+	 * leader genome getter by slot.
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public long getLeader(int slot) {
+		return leaders[slot];
+	}
+
+	/**
+	 * get the number of living members of the species in the given slot.
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public int getSize(int slot) {
+		return sizes[slot];
+	}
+
+	/**
+	 * emergence time getter by slot.
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	public int getEmergeTime(int slot) {
+		return emergeTimes[slot];
+	}
+
+	/**
+	 * count the species that emerged in the current time-step.
+	 * 
+	 * @return
+	 */
+	public int getEmergedCount() {
+		return nEmerged;
+	}
+
+	/**
+	 * count the species that went extinct in the current time-step.
+	 * 
+	 * @return
+	 */
+	public int getExtinctCount() {
+		return nExtinct;
+	}
+
+	/**
+	 * get the ids of the species that emerged in the current time-step.
+	 * 
+	 * @return
+	 */
+	public long[] getEmerged() {
+		return Arrays.copyOf(emerged, nEmerged);
+	}
+
+	/**
+	 * get the ids of the species that went extinct in the current time-step.
+	 * 
+	 * @return
+	 */
+	public long[] getExtinct() {
+		return Arrays.copyOf(extinct, nExtinct);
+	}
+
+	/**
+	 * next species id getter.
+	 * 
+	 * @return
+	 */
+	long getNextId() {
+		return nextId;
+	}
+
+	/**
+	 * put back a species saved from another table (see Checkpoint), in increasing
+	 * order of slot and with no members. finishRestore() must be called once every
+	 * species is restored.
+	 * 
+	 * @param slot
+	 * @param id
+	 * @param leader
+	 * @param emergeTime
+	 */
+	void restore(int slot, long id, long leader, int emergeTime) {
+		if (slot < nextSlot || id < 0) {
+			throw new RuntimeException("speciation restore error");
+		}
+		while (nextSlot <= slot) {
+			takeSlot();
+			ids[nextSlot - 1] = -1;
+		}
+		ids[slot] = id;
+		leaders[slot] = leader;
+		sizes[slot] = 0;
+		emergeTimes[slot] = emergeTime;
+		nSpecies++;
+	}
+
+	/**
+	 * add a restored plant to the restored species in the given slot.
+	 * 
+	 * @param slot
+	 */
+	void restoreMember(int slot) {
+		if (!isUsed(slot)) {
+			throw new RuntimeException("speciation restore error");
+		}
+		sizes[slot]++;
+	}
+
+	/**
+	 * make the slots skipped while restoring available for reuse, and carry on
+	 * numbering species from the given id.
+	 * 
+	 * @param nextId
+	 */
+	void finishRestore(long nextId) {
+		this.nextId = nextId;
+		for (int i = nextSlot - 1; i >= 0; i--) {
+			if (ids[i] < 0) {
+				if (nFree == freeSlots.length) {
+					freeSlots = Arrays.copyOf(freeSlots, nFree * 2);
+				}
+				freeSlots[nFree] = i;
+				nFree++;
+			}
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package environments;
+
+import java.util.Arrays;
+
+import creatures.PlantStore;
+
+/**
+ * handles the side effects of simulating a group of tiles for a single
+ * time-step. Each group of tiles has its own context, and births and deaths are
+ * held back until every group has finished, so that no tile is changed by two
+ * threads at once and no offspring acts in the time-step it was born in,
+ * whichever order the tiles are visited in.
+ * 
+ * @author danpr
+ *
+ */
+public class StepContext {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Environment ENVIRONMENT; // environment the tiles are part of
+	private final SimRandom RNG; // source of randomness for processes on these tiles
+	private final PopulationStats CHANGES = new PopulationStats(); // statistics of deaths and growth on these tiles
+
+	private int[] birthX = new int[INITIAL_CAPACITY]; // held back births (position not yet wrapped)
+	private int[] birthY = new int[INITIAL_CAPACITY]; // ^
+	private int[] birthSize = new int[INITIAL_CAPACITY]; // ^
+	private long[] birthGenome = new long[INITIAL_CAPACITY]; // ^
+	private int[] birthParent = new int[INITIAL_CAPACITY]; // ^ (lineage of parent)
+	private int[] birthSpecies = new int[INITIAL_CAPACITY]; // ^ (species of parent)
+	private int nBirths = 0; // ^
+	private int[] deadGenomes = new int[INITIAL_CAPACITY]; // genome ids of held back deaths
+	private int[] deadLineages = new int[INITIAL_CAPACITY]; // lineages of held back deaths
+	private int[] deadSpecies = new int[INITIAL_CAPACITY]; // species of held back deaths
+	private int nDeaths = 0; // ^
+	private EventBuffer events = null; // deaths and growth recorded on these tiles (null if not logging events)
+
+	private boolean timed = false; // whether photosynthesis and behaviour are timed separately (see StepMetrics)
+	private long photosynthesisTime = 0; // time spent on each in this time-step (nanoseconds)
+	private long behaviourTime = 0; // ^
+	private long allocated = 0; // bytes allocated by the thread simulating these tiles (-1 if unavailable)
+	private int nDied = 0; // number of deaths on these tiles in this time-step
+
+	/**
+	 * initialise with nothing held back.
+	 * 
+	 * @param environment environment the tiles are part of
+	 * @param rng         source of randomness for processes on these tiles
+	 */
+	public StepContext(Environment environment, SimRandom rng) {
+		this.ENVIRONMENT = environment;
+		this.RNG = rng;
+	}
+
+	/**
+	 * rng getter.
+	 * 
+	 * @return
+	 */
+	public SimRandom getRandom() {
+		return RNG;
+	}
+
+	/**
+	 * get the constants of the simulation of the environment.
+	 * 
+	 * @return
+	 */
+	public SimParameters getParameters() {
+		return ENVIRONMENT.getParameters();
+	}
+
+	/**
+	 * set whether to record events for an EventLog.
+	 * 
+	 * @param logging
+	 */
+	void setLogging(boolean logging) {
+		events = logging ? new EventBuffer() : null;
+	}
+
+	/**
+	 * set whether to time photosynthesis and behaviour separately in this
+	 * time-step.
+	 * 
+	 * @param timed
+	 */
+	void setTimed(boolean timed) {
+		this.timed = timed;
+	}
+
+	/**
+	 * check whether to time photosynthesis and behaviour separately.
+	 * 
+	 * @return
+	 */
+	public boolean isTimed() {
+		return timed;
+	}
+
+	/**
+	 * add to the time spent on photosynthesis and behaviour in this time-step.
+	 * 
+	 * @param photosynthesis nanoseconds
+	 * @param behaviour      ^
+	 */
+	public void addTimes(long photosynthesis, long behaviour) {
+		photosynthesisTime += photosynthesis;
+		behaviourTime += behaviour;
+	}
+
+	/**
+	 * add to the bytes allocated while simulating these tiles in this time-step.
+	 * 
+	 * @param bytes bytes, or -1 if unavailable
+	 */
+	void addAllocated(long bytes) {
+		allocated = bytes < 0 || allocated < 0 ? -1 : allocated + bytes;
+	}
+
+	/**
+	 * choose where to place a new plant randomly within the given area, and
+	 * remember to place it there once every tile has been simulated.
+	 * 
+	 * @param tile     tile at centre of area
+	 * @param dist     maximum distance from that tile to place plant
+	 * @param genome   genome of the plant
+	 * @param size     initial size of the plant
+	 * @param parent        lineage of the plant's parent (see Phylogeny)
+	 * @param parentSpecies species of the plant's parent (see Speciation)
+	 */
+	public void birth(EnvironmentTile tile, int dist, long genome, int size, int parent, int parentSpecies) {
+		if (nBirths == birthX.length) {
+			birthX = Arrays.copyOf(birthX, nBirths * 2);
+			birthY = Arrays.copyOf(birthY, nBirths * 2);
+			birthSize = Arrays.copyOf(birthSize, nBirths * 2);
+			birthGenome = Arrays.copyOf(birthGenome, nBirths * 2);
+			birthParent = Arrays.copyOf(birthParent, nBirths * 2);
+			birthSpecies = Arrays.copyOf(birthSpecies, nBirths * 2);
+		}
+		birthX[nBirths] = tile.getX() + RNG.nextInt(dist * 2 + 1) - dist;
+		birthY[nBirths] = tile.getY() + RNG.nextInt(dist * 2 + 1) - dist;
+		birthSize[nBirths] = size;
+		birthGenome[nBirths] = genome;
+		birthParent[nBirths] = parent;
+		birthSpecies[nBirths] = parentSpecies;
+		nBirths++;
+	}
+
+	/**
+	 * record the death of the plant at the given index of a tile, which is about
+	 * to be removed, and remember to release its genome, lineage and species once
+	 * every birth has been carried out.
+	 * 
+	 * @param tile  tile the plant lives on
+	 * @param i     index of the plant on the tile
+	 * @param cause cause of death (see EventBuffer)
+	 */
+	public void death(EnvironmentTile tile, int i, int cause) {
+		PlantStore plants = tile.getPlants();
+		int genomeId = plants.getGenomeId(i);
+		int lineage = plants.getLineage(i);
+		int species = plants.getSpecies(i);
+
+		CHANGES.death(plants.getSize(i), plants.getGenome(i));
+		nDied++;
+		if (events != null) {
+			events.death(ENVIRONMENT.getSimTime(), plants.getId(i), cause, tile.getX(), tile.getY());
+		}
+		if (nDeaths == deadGenomes.length) {
+			deadGenomes = Arrays.copyOf(deadGenomes, nDeaths * 2);
+			deadLineages = Arrays.copyOf(deadLineages, nDeaths * 2);
+			deadSpecies = Arrays.copyOf(deadSpecies, nDeaths * 2);
+		}
+		deadGenomes[nDeaths] = genomeId;
+		deadLineages[nDeaths] = lineage;
+		deadSpecies[nDeaths] = species;
+		nDeaths++;
+	}
+
+	/**
+	 * record the plant at the given index of a tile growing by one, before it
+	 * grows.
+	 * 
+	 * @param tile tile the plant lives on
+	 * @param i    index of the plant on the tile
+	 */
+	public void growth(EnvironmentTile tile, int i) {
+		PlantStore plants = tile.getPlants();
+
+		CHANGES.growth(plants.getSize(i));
+		if (events != null) {
+			events.growth(ENVIRONMENT.getSimTime(), plants.getId(i), plants.getSize(i) + 1, tile.getX(), tile.getY());
+		}
+	}
+
+	/**
+	 * carry out all held back births and then deaths (see applyBirths() and
+	 * applyDeaths()), for simulating tiles outside of a time-step.
+	 */
+	public void apply() {
+		applyBirths();
+		applyDeaths();
+	}
+
+	/**
+	 * add the recorded statistics to those of the environment, hand any recorded
+	 * events to its event log, and then add every held back birth to its tile in
+	 * the order they happened. The births of every context are carried out before
+	 * the deaths of any, so that a parent that died in the same time-step is
+	 * still in the phylogeny.
+	 */
+	void applyBirths() {
+		StepMetrics metrics = ENVIRONMENT.getMetrics();
+		long start = System.nanoTime();
+		long merged;
+
+		ENVIRONMENT.getStats().merge(CHANGES);
+		if (events != null) {
+			events = ENVIRONMENT.getEventLog().swap(events);
+		}
+		merged = System.nanoTime();
+		for (int i = 0; i < nBirths; i++) {
+			ENVIRONMENT.addPlant(ENVIRONMENT.getTile(birthX[i], birthY[i]), birthGenome[i], birthSize[i],
+					birthParent[i], birthSpecies[i]);
+		}
+		nBirths = 0;
+
+		metrics.add(StepPhase.STATS, merged - start);
+		metrics.add(StepPhase.SCATTER, System.nanoTime() - merged);
+	}
+
+	/**
+	 * release the genome, lineage and species of every held back death, then add
+	 * the measurements of the time-step to the environment's metrics.
+	 */
+	void applyDeaths() {
+		StepMetrics metrics = ENVIRONMENT.getMetrics();
+		long start = System.nanoTime();
+
+		for (int i = 0; i < nDeaths; i++) {
+			ENVIRONMENT.getGenomes().release(deadGenomes[i]);
+			ENVIRONMENT.getPhylogeny().release(deadLineages[i]);
+			ENVIRONMENT.getSpeciation().release(deadSpecies[i]);
+		}
+		nDeaths = 0;
+
+		metrics.add(StepPhase.SCATTER, System.nanoTime() - start);
+		metrics.addStripe(timed, photosynthesisTime, behaviourTime, nDied, allocated);
+		photosynthesisTime = 0;
+		behaviourTime = 0;
+		allocated = 0;
+		nDied = 0;
+	}
+}
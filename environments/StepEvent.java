@@ -0,0 +1,67 @@
+package environments;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * flight recorder event for a single time-step of an environment, with the
+ * time spent in each phase (see StepPhase). Only committed while a recording
+ * with the event enabled is running.
+ * 
+ * @author danpr
+ *
+ */
+@Name("evolution.Step")
+@Label("Simulation Step")
+@Category("Evolution Simulator")
+@Description("A single time-step of an environment")
+@StackTrace(false)
+class StepEvent extends Event {
+	@Label("Time")
+	int simTime; // time of the simulation after the step (time-steps)
+
+	@Label("Population")
+	int population; // number of plants after the step
+
+	@Label("Births")
+	int births; // number of plants born in the step
+
+	@Label("Deaths")
+	int deaths; // number of plants that died in the step
+
+	@Label("Cull")
+	@Timespan
+	long cull; // time spent in each phase (nanoseconds)
+
+	@Label("Tiles")
+	@Timespan
+	long tiles; // ^
+
+	@Label("Photosynthesis")
+	@Description("Summed over threads, only when detailed")
+	@Timespan
+	long photosynthesis; // ^
+
+	@Label("Behaviour")
+	@Description("Summed over threads, only when detailed")
+	@Timespan
+	long behaviour; // ^
+
+	@Label("Scatter")
+	@Timespan
+	long scatter; // ^
+
+	@Label("Stats")
+	@Timespan
+	long stats; // ^
+
+	@Label("Allocated")
+	@DataAmount
+	long allocated; // bytes allocated by the step (-1 if unavailable)
+}
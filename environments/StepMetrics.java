@@ -0,0 +1,385 @@
+package environments;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * handles measurement of where the time of each time-step of an environment
+ * goes, kept cheap enough to always be on. The time spent in each phase (see
+ * StepPhase) is recorded in a latency histogram with a bucket for each power of
+ * two of nanoseconds, alongside the rate of simulation and allocation and the
+ * births and deaths of each step. The metrics can be read through JMX once
+ * registered, and each time-step is also a flight recorder event (see
+ * StepEvent).
+ * 
+ * Phases are recorded by the thread stepping the environment (the threads
+ * simulating tiles hand their measurements over through StepContext), and read
+ * from any thread.
+ * 
+ * @author danpr
+ *
+ */
+public class StepMetrics implements StepMetricsMXBean {
+	private static final int BUCKETS = 64; // number of latency histogram buckets
+	private static final long RATE_PERIOD = 1000000000L; // minimum nanoseconds over which rates are measured
+	private static final com.sun.management.ThreadMXBean THREADS = allocationBean(); // (null if unavailable)
+
+	private final long[][] histograms = new long[StepPhase.PHASES.length][BUCKETS]; // count of latencies by bucket
+	private final long[] counts = new long[StepPhase.PHASES.length]; // number of latencies recorded of each phase
+	private final long[] sums = new long[StepPhase.PHASES.length]; // total of latencies of each phase (nanoseconds)
+
+	private final long[] current = new long[StepPhase.PHASES.length]; // time in each phase of the step (nanoseconds)
+	private final boolean[] ran = new boolean[StepPhase.PHASES.length]; // whether each phase ran in the step
+	private int births = 0; // number of plants born in the step
+	private int deaths = 0; // number of plants that died in the step
+	private long allocated = 0; // bytes allocated in the step (-1 if unavailable)
+
+	private volatile boolean detailed = false; // whether photosynthesis and behaviour are timed separately
+	private long stepCount = 0; // number of time-steps simulated
+	private int lastBirths = 0; // births and deaths of the last time-step
+	private int lastDeaths = 0; // ^
+	private long totalBirths = 0; // births and deaths of every time-step
+	private long totalDeaths = 0; // ^
+	private long chunkAllocations = 0; // number of chunks of tiles allocated
+	private long chunkRecycles = 0; // number of those reused from the pool rather than created
+	private long rateStart = System.nanoTime(); // start of the period rates are being measured over
+	private long rateSteps = 0; // time-steps simulated in the period
+	private long rateAllocated = 0; // bytes allocated in the period (-1 if unavailable)
+	private double stepsPerSecond = 0; // rates over the last complete period
+	private double allocationRate = 0; // ^
+
+	private ObjectName name = null; // name registered with JMX (null if not registered)
+
+	/**
+	 * get the platform bean that measures allocation by thread, if this JVM has
+	 * one that is enabled.
+	 * 
+	 * @return
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * get the number of bytes allocated by the current thread so far.
+	 * 
+	 * @return bytes, or -1 if unavailable
+	 */
+	static long allocatedBytes() {
+		return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+	}
+
+	/**
+	 * register the metrics with the platform MBean server under the given name.
+	 * 
+	 * @param name distinguishes these metrics from those of other environments
+	 */
+	public synchronized void register(String name) {
+		unregister();
+		try {
+			this.name = new ObjectName("evolution:type=StepMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.name);
+		} catch (JMException e) {
+			this.name = null;
+			throw new RuntimeException("metrics registration error", e);
+		}
+	}
+
+	/**
+	 * remove the metrics from the platform MBean server, if registered.
+	 */
+	public synchronized void unregister() {
+		if (name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			} catch (JMException e) {
+				throw new RuntimeException("metrics registration error", e);
+			} finally {
+				name = null;
+			}
+		}
+	}
+
+	/**
+	 * add to the time spent in a phase of the current time-step.
+	 * 
+	 * @param phase
+	 * @param nanos
+	 */
+	void add(StepPhase phase, long nanos) {
+		current[phase.ordinal()] += nanos;
+		ran[phase.ordinal()] = true;
+	}
+
+	/**
+	 * add the measurements of a stripe of tiles to the current time-step.
+	 * 
+	 * @param timed          whether photosynthesis and behaviour were timed
+	 * @param photosynthesis time spent sharing sunlight (nanoseconds)
+	 * @param behaviour      time spent growing, reproducing and dying (^)
+	 * @param deaths         number of plants that died
+	 * @param allocated      bytes allocated by the thread simulating the stripe (-1
+	 *                       if unavailable)
+	 */
+	void addStripe(boolean timed, long photosynthesis, long behaviour, int deaths, long allocated) {
+		if (timed) {
+			add(StepPhase.PHOTOSYNTHESIS, photosynthesis);
+			add(StepPhase.BEHAVIOUR, behaviour);
+		}
+		this.deaths += deaths;
+		addAllocated(allocated);
+	}
+
+	/**
+	 * count plants born in the current time-step.
+	 * 
+	 * @param births
+	 */
+	void addBirths(int births) {
+		this.births += births;
+	}
+
+	/**
+	 * count plants that died in the current time-step.
+	 * 
+	 * @param deaths
+	 */
+	void addDeaths(int deaths) {
+		this.deaths += deaths;
+	}
+
+	/**
+	 * count a chunk of tiles being allocated.
+	 * 
+	 * @param recycled true if the chunk was reused from the pool
+	 */
+	synchronized void addChunk(boolean recycled) {
+		chunkAllocations++;
+		if (recycled) {
+			chunkRecycles++;
+		}
+	}
+
+	/**
+	 * add to the bytes allocated in the current time-step.
+	 * 
+	 * @param bytes bytes, or -1 if unavailable
+	 */
+	void addAllocated(long bytes) {
+		if (bytes < 0 || allocated < 0) {
+			allocated = -1;
+		} else {
+			allocated += bytes;
+		}
+	}
+
+	/**
+	 * record the latency of a phase that happens outside of time-steps.
+	 * 
+	 * @param phase
+	 * @param nanos
+	 */
+	synchronized void record(StepPhase phase, long nanos) {
+		int bucket = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+
+		histograms[phase.ordinal()][bucket]++;
+		counts[phase.ordinal()]++;
+		sums[phase.ordinal()] += nanos;
+	}
+
+	/**
+	 * record every phase of the time-step that has just finished, commit its
+	 * flight recorder event, and start measuring the next.
+	 * 
+	 * @param simTime    time of the simulation after the step
+	 * @param population number of plants after the step
+	 * @param event      event of the step, begun when the step started
+	 */
+	synchronized void endStep(int simTime, int population, StepEvent event) {
+		long now = System.nanoTime();
+
+		for (StepPhase phase : StepPhase.PHASES) {
+			if (ran[phase.ordinal()]) {
+				record(phase, current[phase.ordinal()]);
+			}
+		}
+		stepCount++;
+		lastBirths = births;
+		lastDeaths = deaths;
+		totalBirths += births;
+		totalDeaths += deaths;
+
+		rateSteps++;
+		rateAllocated = allocated < 0 || rateAllocated < 0 ? -1 : rateAllocated + allocated;
+		if (now - rateStart >= RATE_PERIOD) {
+			stepsPerSecond = rateSteps * 1e9 / (now - rateStart);
+			allocationRate = rateAllocated < 0 ? -1 : rateAllocated * 1e9 / (now - rateStart);
+			rateStart = now;
+			rateSteps = 0;
+			rateAllocated = 0;
+		}
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.simTime = simTime;
+			event.population = population;
+			event.births = births;
+			event.deaths = deaths;
+			event.cull = current[StepPhase.CULL.ordinal()];
+			event.tiles = current[StepPhase.TILES.ordinal()];
+			event.photosynthesis = current[StepPhase.PHOTOSYNTHESIS.ordinal()];
+			event.behaviour = current[StepPhase.BEHAVIOUR.ordinal()];
+			event.scatter = current[StepPhase.SCATTER.ordinal()];
+			event.stats = current[StepPhase.STATS.ordinal()];
+			event.allocated = allocated;
+			event.commit();
+		}
+
+		for (int i = 0; i < current.length; i++) {
+			current[i] = 0;
+			ran[i] = false;
+		}
+		births = 0;
+		deaths = 0;
+		allocated = 0;
+	}
+
+	/**
+	 * find the latency below which the given proportion of latencies of a phase
+	 * fall, interpolating within the bucket it falls in.
+	 * 
+	 * @param phase
+	 * @param proportion between 0 and 1
+	 * @return microseconds (0 if none recorded)
+	 */
+	private double percentile(StepPhase phase, double proportion) {
+		long[] histogram = histograms[phase.ordinal()];
+		double target = proportion * counts[phase.ordinal()];
+		long below = 0;
+
+		if (counts[phase.ordinal()] == 0) {
+			return 0;
+		}
+		for (int i = 0; i < BUCKETS; i++) {
+			if (histogram[i] > 0 && below + histogram[i] >= target) {
+				return ((1L << i) + (1L << i) * (target - below) / histogram[i]) / 1000;
+			}
+			below += histogram[i];
+		}
+		return (1L << (BUCKETS - 1)) / 1000.0;
+	}
+
+	@Override
+	public synchronized long getStepCount() {
+		return stepCount;
+	}
+
+	@Override
+	public synchronized double getStepsPerSecond() {
+		return stepsPerSecond;
+	}
+
+	@Override
+	public synchronized double getAllocationRate() {
+		return allocationRate;
+	}
+
+	@Override
+	public synchronized int getLastBirths() {
+		return lastBirths;
+	}
+
+	@Override
+	public synchronized int getLastDeaths() {
+		return lastDeaths;
+	}
+
+	@Override
+	public synchronized long getTotalBirths() {
+		return totalBirths;
+	}
+
+	@Override
+	public synchronized long getTotalDeaths() {
+		return totalDeaths;
+	}
+
+	@Override
+	public synchronized long getChunkAllocations() {
+		return chunkAllocations;
+	}
+
+	@Override
+	public synchronized double getChunkPoolHitRate() {
+		return chunkAllocations > 0 ? (double) chunkRecycles / chunkAllocations : 0;
+	}
+
+	@Override
+	public synchronized Map<String, Double> getMeanMicros() {
+		Map<String, Double> means = new LinkedHashMap<String, Double>();
+
+		for (StepPhase phase : StepPhase.PHASES) {
+			if (counts[phase.ordinal()] > 0) {
+				means.put(phase.name(), sums[phase.ordinal()] / 1000.0 / counts[phase.ordinal()]);
+			}
+		}
+		return means;
+	}
+
+	@Override
+	public synchronized Map<String, Double> getMedianMicros() {
+		return percentiles(0.5);
+	}
+
+	@Override
+	public synchronized Map<String, Double> getP99Micros() {
+		return percentiles(0.99);
+	}
+
+	/**
+	 * get the given percentile of each phase that has been recorded.
+	 * 
+	 * @param proportion between 0 and 1
+	 * @return microseconds by phase name
+	 */
+	private Map<String, Double> percentiles(double proportion) {
+		Map<String, Double> percentiles = new LinkedHashMap<String, Double>();
+
+		for (StepPhase phase : StepPhase.PHASES) {
+			if (counts[phase.ordinal()] > 0) {
+				percentiles.put(phase.name(), percentile(phase, proportion));
+			}
+		}
+		return percentiles;
+	}
+
+	@Override
+	public boolean isDetailed() {
+		return detailed;
+	}
+
+	@Override
+	public void setDetailed(boolean detailed) {
+		this.detailed = detailed;
+	}
+
+	@Override
+	public synchronized void reset() {
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new long[BUCKETS];
+			counts[i] = 0;
+			sums[i] = 0;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package environments;
+
+import java.util.Map;
+
+/**
+ * management interface of StepMetrics, for reading the metrics of a running
+ * simulation through JMX. Latencies are given by phase name (see StepPhase).
+ * 
+ * @author danpr
+ *
+ */
+public interface StepMetricsMXBean {
+	/**
+	 * get the number of time-steps simulated since the metrics were created.
+	 * 
+	 * @return
+	 */
+	long getStepCount();
+
+	/**
+	 * get the rate of simulation over the last second or so.
+	 * 
+	 * @return time-steps per second
+	 */
+	double getStepsPerSecond();
+
+	/**
+	 * get the rate of allocation by the simulation over the last second or so.
+	 * 
+	 * @return bytes per second, or -1 if unavailable
+	 */
+	double getAllocationRate();
+
+	/**
+	 * get the number of plants born in the last time-step.
+	 * 
+	 * @return
+	 */
+	int getLastBirths();
+
+	/**
+	 * get the number of plants that died in the last time-step.
+	 * 
+	 * @return
+	 */
+	int getLastDeaths();
+
+	/**
+	 * get the number of plants born since the metrics were created.
+	 * 
+	 * @return
+	 */
+	long getTotalBirths();
+
+	/**
+	 * get the number of plants that died since the metrics were created.
+	 * 
+	 * @return
+	 */
+	long getTotalDeaths();
+
+	/**
+	 * get the number of chunks of tiles allocated since the metrics were created.
+	 * 
+	 * @return
+	 */
+	long getChunkAllocations();
+
+	/**
+	 * get the fraction of chunk allocations served by reusing a released chunk.
+	 * 
+	 * @return between 0 and 1 (0 if no chunk has been allocated)
+	 */
+	double getChunkPoolHitRate();
+
+	/**
+	 * get the mean latency of each phase.
+	 * 
+	 * @return microseconds by phase name
+	 */
+	Map<String, Double> getMeanMicros();
+
+	/**
+	 * get the median latency of each phase.
+	 * 
+	 * @return microseconds by phase name
+	 */
+	Map<String, Double> getMedianMicros();
+
+	/**
+	 * get the 99th percentile latency of each phase.
+	 * 
+	 * @return microseconds by phase name
+	 */
+	Map<String, Double> getP99Micros();
+
+	/**
+	 * check whether photosynthesis and behaviour are timed separately on each
+	 * tile.
+	 * 
+	 * @return
+	 */
+	boolean isDetailed();
+
+	/**
+	 * set whether photosynthesis and behaviour are timed separately on each tile,
+	 * which costs a little time on every tile.
+	 * 
+	 * @param detailed
+	 */
+	void setDetailed(boolean detailed);
+
+	/**
+	 * forget every latency recorded so far.
+	 */
+	void reset();
+}
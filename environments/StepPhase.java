@@ -0,0 +1,21 @@
+package environments;
+
+/**
+ * handles the designation of the phases of a time-step that are timed by
+ * StepMetrics.
+ * 
+ * @author danpr
+ *
+ */
+public enum StepPhase {
+	STEP, // whole time-step
+	CULL, // periodic culling
+	TILES, // simulating every tile (photosynthesis and behaviour, on all threads)
+	PHOTOSYNTHESIS, // sharing sunlight on each tile (summed over threads, only when detailed)
+	BEHAVIOUR, // growing, reproducing and dying on each tile (^)
+	SCATTER, // placing seeds and releasing the dead once tiles are simulated
+	STATS, // merging statistics and handing over logged events
+	SNAPSHOT; // copying the environment for display
+
+	static final StepPhase[] PHASES = values(); // cached to avoid copying values() on every use
+}
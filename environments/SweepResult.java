@@ -0,0 +1,179 @@
+package environments;
+
+import genetics.GeneType;
+
+/**
+ * handles the summary of a single run of a ParameterSweep: the parameters and
+ * seed it was run with, and the state of its environment at the end of the
+ * run.
+ * 
+ * @author danpr
+ *
+ */
+public class SweepResult {
+	private final SimParameters PARAMETERS; // parameters the run was simulated with
+	private final int REPLICATE; // number of the run among those with the same parameters
+	private final long SEED; // seed of the run's environment
+	private final int TIME; // time the run ended (time-steps, early if the population died out)
+	private final int POPULATION; // number of plants at the end of the run
+	private final int PEAK_POPULATION; // most plants alive at the end of any time-step
+	private final long BIOMASS; // total size of plants at the end of the run
+	private final int GENOTYPES; // number of distinct genomes at the end of the run
+	private final int SPECIES; // number of living species at the end of the run
+	private final int EMERGED; // number of species that emerged during the run
+	private final int EXTINCT; // number of species that went extinct during the run
+	private final float[] GENES; // average magnitude of each gene at the end of the run (by gene)
+	private final long MILLIS; // time taken to simulate the run (milliseconds)
+
+	/**
+	 * initialise as the summary of a finished run.
+	 * 
+	 * @param parameters     parameters the run was simulated with
+	 * @param replicate      number of the run among those with the same
+	 *                       parameters
+	 * @param environment    environment of the run, at its end
+	 * @param peakPopulation most plants alive at the end of any time-step
+	 * @param emerged        number of species that emerged during the run
+	 * @param extinct        number of species that went extinct during the run
+	 * @param millis         time taken to simulate the run
+	 */
+	SweepResult(SimParameters parameters, int replicate, Environment environment, int peakPopulation, int emerged,
+			int extinct, long millis) {
+		PopulationStats stats = environment.getStats();
+
+		this.PARAMETERS = parameters;
+		this.REPLICATE = replicate;
+		this.SEED = environment.getSeed();
+		this.TIME = environment.getSimTime();
+		this.POPULATION = stats.getPopulation();
+		this.PEAK_POPULATION = peakPopulation;
+		this.BIOMASS = stats.getBiomass();
+		this.GENOTYPES = environment.getGenomes().size();
+		this.SPECIES = environment.getSpeciation().getCount();
+		this.EMERGED = emerged;
+		this.EXTINCT = extinct;
+		this.GENES = new float[GeneType.values().length];
+		for (GeneType type : GeneType.values()) {
+			GENES[type.ordinal()] = stats.getGeneMagnitude(type);
+		}
+		this.MILLIS = millis;
+	}
+
+	/**
+	 * parameters getter.
+	 * 
+	 * @return
+	 */
+	public SimParameters getParameters() {
+		return PARAMETERS;
+	}
+
+	/**
+	 * replicate getter.
+	 * 
+	 * @return
+	 */
+	public int getReplicate() {
+		return REPLICATE;
+	}
+
+	/**
+	 * seed getter.
+	 * 
+	 * @return
+	 */
+	public long getSeed() {
+		return SEED;
+	}
+
+	/**
+	 * get the time the run ended, which is early if the population died out.
+	 * 
+	 * @return
+	 */
+	public int getTime() {
+		return TIME;
+	}
+
+	/**
+	 * population getter.
+	 * 
+	 * @return
+	 */
+	public int getPopulation() {
+		return POPULATION;
+	}
+
+	/**
+	 * peak population getter.
+	 * 
+	 * @return
+	 */
+	public int getPeakPopulation() {
+		return PEAK_POPULATION;
+	}
+
+	/**
+	 * biomass getter.
+	 * 
+	 * @return
+	 */
+	public long getBiomass() {
+		return BIOMASS;
+	}
+
+	/**
+	 * genotypes getter.
+	 * 
+	 * @return
+	 */
+	public int getGenotypes() {
+		return GENOTYPES;
+	}
+
+	/**
+	 * species getter.
+	 * 
+	 * @return
+	 */
+	public int getSpecies() {
+		return SPECIES;
+	}
+
+	/**
+	 * emerged species getter.
+	 * 
+	 * @return
+	 */
+	public int getEmerged() {
+		return EMERGED;
+	}
+
+	/**
+	 * extinct species getter.
+	 * 
+	 * @return
+	 */
+	public int getExtinct() {
+		return EXTINCT;
+	}
+
+	/**
+	 * get the average magnitude of the given gene at the end of the run.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	public float getGeneMagnitude(GeneType type) {
+		return GENES[type.ordinal()];
+	}
+
+	/**
+	 * millis getter.
+	 * 
+	 * @return
+	 */
+	public long getMillis() {
+		return MILLIS;
+	}
+}
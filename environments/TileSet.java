@@ -0,0 +1,151 @@
+package environments;
+
+import java.util.Arrays;
+
+/**
+ * handles a set of tiles of a grid as one bit per tile, so that the tiles in
+ * the set can be visited in column order at a cost proportional to the number
+ * of tiles in the set rather than the size of the grid. Each column has its own
+ * words, so threads working on different columns can change the set at the
+ * same time.
+ * 
+ * @author danpr
+ *
+ */
+public class TileSet {
+	private final int HEIGHT; // number of tiles in each column
+	private final int COLUMN_WORDS; // number of words used by each column
+
+	private final long[] WORDS; // bit for each tile, column by column
+
+	/**
+	 * initialise as an empty set of tiles of a grid of the given size.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public TileSet(int width, int height) {
+		this.HEIGHT = height;
+		this.COLUMN_WORDS = (height + 63) >>> 6;
+		this.WORDS = new long[width * COLUMN_WORDS];
+	}
+
+	/**
+	 * add the tile at the given grid reference to the set.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void add(int x, int y) {
+		WORDS[x * COLUMN_WORDS + (y >>> 6)] |= 1L << y;
+	}
+
+	/**
+	 * remove the tile at the given grid reference from the set.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void remove(int x, int y) {
+		WORDS[x * COLUMN_WORDS + (y >>> 6)] &= ~(1L << y);
+	}
+
+	/**
+	 * check whether the tile at the given grid reference is in the set.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public boolean contains(int x, int y) {
+		return (WORDS[x * COLUMN_WORDS + (y >>> 6)] & (1L << y)) != 0;
+	}
+
+	/**
+	 * find the first tile in the set in the given column at or after the given
+	 * row. Tiles added after the row while visiting a column are therefore still
+	 * found.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return row of the tile, or -1 if there is none
+	 */
+	public int next(int x, int y) {
+		int start = x * COLUMN_WORDS;
+		int word = y >>> 6;
+		long bits;
+
+		if (y >= HEIGHT) {
+			return -1;
+		}
+		bits = WORDS[start + word] & (-1L << y);
+		while (bits == 0) {
+			word++;
+			if (word == COLUMN_WORDS) {
+				return -1;
+			}
+			bits = WORDS[start + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * check whether any tile in the given column is in the set.
+	 * 
+	 * @param x
+	 * @return
+	 */
+	public boolean isColumnEmpty(int x) {
+		for (int i = x * COLUMN_WORDS; i < (x + 1) * COLUMN_WORDS; i++) {
+			if (WORDS[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * check whether any tile in the given block is in the set. The rows of the
+	 * block must all lie in the same 64 rows, which holds for any block whose
+	 * height divides 64 and whose first row is a multiple of its height.
+	 * 
+	 * @param startX first column of the block
+	 * @param endX   column after the last of the block
+	 * @param startY first row of the block
+	 * @param endY   row after the last of the block
+	 * @return
+	 */
+	public boolean isBlockEmpty(int startX, int endX, int startY, int endY) {
+		long mask = (-1L >>> (64 - (endY - startY))) << startY;
+
+		for (int i = startX; i < endX; i++) {
+			if ((WORDS[i * COLUMN_WORDS + (startY >>> 6)] & mask) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * remove every tile in the given column from the set.
+	 * 
+	 * @param x
+	 */
+	public void clearColumn(int x) {
+		Arrays.fill(WORDS, x * COLUMN_WORDS, (x + 1) * COLUMN_WORDS, 0);
+	}
+
+	/**
+	 * count the tiles in the set.
+	 * 
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+
+		for (long word : WORDS) {
+			size += Long.bitCount(word);
+		}
+		return size;
+	}
+}
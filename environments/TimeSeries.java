@@ -0,0 +1,116 @@
+package environments;
+
+/**
+ * handles a history of values recorded at increasing times, holding only the
+ * most recent values up to a fixed capacity. Recording overwrites the oldest
+ * value once full, so the history never needs to be shifted or re-timed.
+ * 
+ * @author danpr
+ *
+ */
+public class TimeSeries {
+	private final int[] TIMES; // time of each value (time-steps)
+	private final float[] VALUES; // recorded values
+	private int start = 0; // index of the oldest value
+	private int size = 0; // number of values held
+
+	/**
+	 * initialise as an empty history.
+	 * 
+	 * @param capacity number of values to hold
+	 */
+	public TimeSeries(int capacity) {
+		this.TIMES = new int[capacity];
+		this.VALUES = new float[capacity];
+	}
+
+	/**
+	 * record a value, forgetting the oldest value if full.
+	 * 
+	 * @param time  time of the value (time-steps)
+	 * @param value
+	 */
+	public void record(int time, float value) {
+		int i;
+
+		if (size < TIMES.length) {
+			i = start + size;
+			if (i >= TIMES.length) {
+				i -= TIMES.length;
+			}
+			size++;
+		} else {
+			i = start;
+			start++;
+			if (start == TIMES.length) {
+				start = 0;
+			}
+		}
+		TIMES[i] = time;
+		VALUES[i] = value;
+	}
+
+	/**
+	 * forget every value.
+	 */
+	public void clear() {
+		start = 0;
+		size = 0;
+	}
+
+	/**
+	 * size getter.
+	 * 
+	 * @return number of values held
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * capacity getter.
+	 * 
+	 * @return
+	 */
+	public int capacity() {
+		return TIMES.length;
+	}
+
+	/**
+	 * time getter by age order.
+	 * 
+	 * @param i 0 for the oldest value held, size() - 1 for the newest
+	 * @return
+	 */
+	public int getTime(int i) {
+		return TIMES[index(i)];
+	}
+
+	/**
+	 * value getter by age order.
+	 * 
+	 * @param i 0 for the oldest value held, size() - 1 for the newest
+	 * @return
+	 */
+	public float getValue(int i) {
+		return VALUES[index(i)];
+	}
+
+	/**
+	 * convert a position in age order to an index in the buffer.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	private int index(int i) {
+		int index = start + i;
+
+		if (i < 0 || i >= size) {
+			throw new RuntimeException("time series index error");
+		}
+		if (index >= TIMES.length) {
+			index -= TIMES.length;
+		}
+		return index;
+	}
+}
@@ -1,8 +1,16 @@
 package frontEnd;
 
-import creatures.Creature;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import environments.Checkpoint;
 import environments.Environment;
+import environments.SimulationScheduler;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.stage.Stage;
 
 /**
@@ -12,35 +20,141 @@ import javafx.stage.Stage;
  *
  */
 public class AppRoot extends Application {
+	private static final String USAGE = "usage: AppRoot [--resume=file] [--environments=1]";
+
+	private final SimulationScheduler SCHEDULER = new SimulationScheduler(); // shared by every environment's simulation
+
+	private ArrayList<CreatureWindow> creatureWindows = new ArrayList<CreatureWindow>(); // open creature windows
 
 	/**
-	 * opens a simulation window when the program is run.
+	 * opens a simulation window when the program is run, carrying on from the
+	 * checkpoint given by --resume=file if there is one (reporting it and starting
+	 * a new environment instead if it cannot be loaded), with as many newly
+	 * generated environments alongside as given by --environments=n.
 	 */
 	@Override
 	public void start(Stage stage) throws Exception {
-		stage = new SimWindow(22, 10, this);
+		String resume = getParameters().getNamed().get("resume");
+		String environments = getParameters().getNamed().get("environments");
+		int nEnvironments;
+		Environment environment = null;
+		Alert alert;
+		SimWindow window;
+
+		try {
+			nEnvironments = parseEnvironments(environments);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			Platform.exit();
+			return;
+		}
+		if (resume != null) {
+			try {
+				environment = Checkpoint.load(Paths.get(resume));
+			} catch (IOException e) {
+				alert = new Alert(AlertType.ERROR, resume + ": " + e.getMessage());
+				alert.setHeaderText("Could not load the environment, starting a new one");
+				alert.showAndWait();
+			}
+		}
+		if (environment != null) {
+			window = new SimWindow(environment, this);
+		} else {
+			window = new SimWindow(22, 10, this);
+		}
+		for (int i = 1; i < nEnvironments; i++) {
+			window.addEnvironment();
+		}
+		stage = window;
 		stage.show();
 	}
 
 	/**
-	 * opens a creature window with the data of the given creature displayed.
+	 * read the number of environments to open from the value given by
+	 * --environments=n.
 	 * 
-	 * @param creature
+	 * @param value null if not given
 	 * @return
+	 * @throws IllegalArgumentException if the value is not a number of at least 1
+	 */
+	private static int parseEnvironments(String value) {
+		int nEnvironments;
+
+		if (value == null) {
+			return 1;
+		}
+		nEnvironments = Integer.parseInt(value);
+		if (nEnvironments < 1) {
+			throw new IllegalArgumentException("option out of range");
+		}
+		return nEnvironments;
+	}
+
+	/**
+	 * stop the shared simulation workers when the program exits.
 	 */
-	public CreatureWindow creatureWindow(Creature creature) {
-		CreatureWindow creatureWindow = new CreatureWindow(creature);
+	@Override
+	public void stop() {
+		SCHEDULER.shutdown();
+	}
+
+	/**
+	 * scheduler getter.
+	 * 
+	 * @return
+	 */
+	public SimulationScheduler getScheduler() {
+		return SCHEDULER;
+	}
+
+	/**
+	 * opens a creature window with the data of the given plant displayed, or
+	 * brings forward the window already displaying it (plants of different
+	 * environments can share an id, so the environment must match too).
+	 * 
+	 * @param view    display of the environment the plant lives in
+	 * @param x       position of the tile the plant lives on
+	 * @param y       ^
+	 * @param plantId id of the plant
+	 * @return
+	 */
+	public CreatureWindow creatureWindow(EnvironmentView view, int x, int y, long plantId) {
+		CreatureWindow creatureWindow;
+
+		for (CreatureWindow openWindow : creatureWindows) {
+			if (openWindow.getView() == view && openWindow.getPlantId() == plantId && openWindow.isShowing()) {
+				openWindow.toFront();
+				return openWindow;
+			}
+		}
+		creatureWindow = new CreatureWindow(view, x, y, plantId);
 		creatureWindow.show();
+		creatureWindows.add(creatureWindow);
 		return creatureWindow;
 	}
 
+	/**
+	 * update the graphical output of each open creature window, and forget any
+	 * that have been closed.
+	 */
+	public void refreshCreatureWindows() {
+		for (int i = creatureWindows.size() - 1; i >= 0; i--) {
+			if (creatureWindows.get(i).isShowing()) {
+				creatureWindows.get(i).refresh();
+			} else {
+				creatureWindows.remove(i);
+			}
+		}
+	}
+
 	/**
 	 * opens a statistics window with the data of the given environment.
 	 * 
 	 * @param environment
 	 * @return
 	 */
-	public StatWindow statWindow(Environment environment) {
+	public StatWindow statWindow(EnvironmentView environment) {
 		StatWindow statWindow = new StatWindow(environment);
 		statWindow.show();
 		return statWindow;
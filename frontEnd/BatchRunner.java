@@ -0,0 +1,297 @@
+package frontEnd;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import environments.Checkpoint;
+import environments.Environment;
+import environments.EventLog;
+import environments.PopulationStats;
+import environments.SimParameters;
+import environments.SimRandom;
+import environments.Speciation;
+import genetics.GeneType;
+
+/**
+ * handles running a simulation from the command line without any graphical
+ * output, at full speed, writing the statistics of each time-step to a file
+ * as comma separated values. A run can be saved to a checkpoint as it goes,
+ * and carried on from one later, and every event can be logged to a binary
+ * file (see EventLog).
+ * 
+ * usage: BatchRunner [--option value]... (see USAGE)
+ * 
+ * @author danpr
+ *
+ */
+public class BatchRunner {
+	private static final String USAGE = "usage: BatchRunner [--width 22] [--height 10] [--clusters 3]"
+			+ " [--cluster-size 20] [--cluster-radius 2] [--cull-period 0] [--cull-radius 0] [--seed random]"
+			+ " [--steps 10000] [--threads 1] [--every 1] [--out stats.csv | -] [--resume file]"
+			+ " [--checkpoint file] [--checkpoint-every 0] [--events file] [--param name=value]...\nparameters: "
+			+ String.join(", ", SimParameters.NAMES);
+	private static final GeneType[] GENE_TYPES = GeneType.values(); // cached to avoid copying values() on every row
+
+	private int width = 22; // size of environment (tiles)
+	private int height = 10; // ^
+	private int nClusters = 3; // number of clusters of plants to start with
+	private int clusterSize = 20; // number of plants per cluster
+	private int clusterRadius = 2; // radius of each cluster
+	private int killPeriod = 0; // number of time-steps between cullings (0 to never cull)
+	private int killRadius = 0; // radius of area to cull
+	private boolean cullGiven = false; // whether the cull was set on the command line (otherwise resumed as saved)
+	private Long seed = null; // seed of the environment (null for a random seed)
+	private SimParameters parameters = SimParameters.DEFAULT; // constants shaping how plants live
+	private boolean parametersGiven = false; // whether any parameters were set on the command line
+	private int steps = 10000; // number of time-steps to simulate
+	private int threads = 1; // number of threads to simulate tiles on
+	private int every = 1; // number of time-steps between rows of output
+	private String out = "stats.csv"; // file to write to ("-" for standard output)
+	private Path resume = null; // checkpoint to carry on from (null to start a new environment)
+	private Path checkpoint = null; // checkpoint to save to (null to never save)
+	private int checkpointEvery = 0; // number of time-steps between checkpoints (0 to only save at the end)
+	private Path events = null; // binary file to log every event to (null to not log events)
+
+	/**
+	 * read the options given on the command line.
+	 * 
+	 * @param args
+	 */
+	private BatchRunner(String[] args) {
+		String value;
+
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			}
+			value = args[i + 1];
+			switch (args[i]) {
+			case "--width":
+				width = Integer.parseInt(value);
+				break;
+			case "--height":
+				height = Integer.parseInt(value);
+				break;
+			case "--clusters":
+				nClusters = Integer.parseInt(value);
+				break;
+			case "--cluster-size":
+				clusterSize = Integer.parseInt(value);
+				break;
+			case "--cluster-radius":
+				clusterRadius = Integer.parseInt(value);
+				break;
+			case "--cull-period":
+				killPeriod = Integer.parseInt(value);
+				cullGiven = true;
+				break;
+			case "--cull-radius":
+				killRadius = Integer.parseInt(value);
+				cullGiven = true;
+				break;
+			case "--seed":
+				seed = Long.parseLong(value);
+				break;
+			case "--steps":
+				steps = Integer.parseInt(value);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(value);
+				break;
+			case "--every":
+				every = Integer.parseInt(value);
+				break;
+			case "--out":
+				out = value;
+				break;
+			case "--resume":
+				resume = Paths.get(value);
+				break;
+			case "--checkpoint":
+				checkpoint = Paths.get(value);
+				break;
+			case "--checkpoint-every":
+				checkpointEvery = Integer.parseInt(value);
+				break;
+			case "--events":
+				events = Paths.get(value);
+				break;
+			case "--param":
+				parameters = parameters.with(SweepRunner.nameOf(value), Float.parseFloat(SweepRunner.valueOf(value)));
+				parametersGiven = true;
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+		if (width < 1 || height < 1 || steps < 0 || threads < 1 || every < 1 || killPeriod < 0
+				|| killRadius < 0 || checkpointEvery < 0) {
+			throw new IllegalArgumentException("option out of range");
+		}
+		if (resume != null && parametersGiven) {
+			throw new IllegalArgumentException("parameters are restored from the checkpoint");
+		}
+	}
+
+	/**
+	 * simulate the environment, writing a row of statistics every few time-steps
+	 * and saving checkpoints if asked to.
+	 * 
+	 * @throws IOException
+	 */
+	private void run() throws IOException {
+		Environment environment;
+		EventLog log = null;
+		int emerged = 0;
+		int extinct = 0;
+		long startTime = System.nanoTime();
+
+		if (resume != null) {
+			environment = Checkpoint.load(resume);
+		} else if (seed == null) {
+			environment = new Environment(width, height, nClusters, clusterSize, clusterRadius,
+					SimRandom.randomSeed(), parameters);
+		} else {
+			environment = new Environment(width, height, nClusters, clusterSize, clusterRadius, seed, parameters);
+		}
+		environment.setThreads(threads);
+		if (resume == null || cullGiven) {
+			environment.setPeriodicCull(killPeriod > 0, Math.max(killPeriod, 1), killRadius);
+		}
+		if (events != null) {
+			log = new EventLog(events);
+			environment.setEventLog(log);
+		}
+		environment.getMetrics().register("batch-" + environment.getSeed());
+
+		try (Writer writer = openOutput()) {
+			writer.write("# seed " + environment.getSeed() + "\n");
+			writeHeader(writer);
+			writeRow(writer, environment, environment.getSpeciation().getEmergedCount(),
+					environment.getSpeciation().getExtinctCount());
+			for (int i = 1; i <= steps; i++) {
+				environment.simulateSingle(1);
+				emerged += environment.getSpeciation().getEmergedCount();
+				extinct += environment.getSpeciation().getExtinctCount();
+				if (i % every == 0 || i == steps) {
+					writeRow(writer, environment, emerged, extinct);
+					emerged = 0;
+					extinct = 0;
+				}
+				if (checkpoint != null && checkpointEvery > 0 && i % checkpointEvery == 0) {
+					writer.flush();
+					Checkpoint.save(environment, checkpoint);
+				}
+			}
+			if (checkpoint != null) {
+				Checkpoint.save(environment, checkpoint);
+			}
+		} finally {
+			environment.getMetrics().unregister();
+			environment.setThreads(1);
+			if (log != null) {
+				environment.setEventLog(null);
+				log.close();
+			}
+		}
+		System.err.println("simulated " + steps + " time-steps in " + (System.nanoTime() - startTime) / 1000000
+				+ " ms, final population " + environment.getPopulation()
+				+ (log != null ? ", " + log.getEventCount() + " events logged" : ""));
+		System.err.println("mean time-step phases (us): " + environment.getMetrics().getMeanMicros());
+		System.err.println("chunks allocated: " + environment.getMetrics().getChunkAllocations() + ", pool hit rate "
+				+ environment.getMetrics().getChunkPoolHitRate());
+	}
+
+	/**
+	 * open the output file (or standard output) for buffered writing.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private Writer openOutput() throws IOException {
+		if (out.equals("-")) {
+			return new BufferedWriter(new OutputStreamWriter(System.out));
+		}
+		return new BufferedWriter(new FileWriter(out));
+	}
+
+	/**
+	 * write the names of each column.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	private static void writeHeader(Writer writer) throws IOException {
+		writer.write("time,population,biomass,genotypes,species,emerged,extinct");
+		for (GeneType type : GENE_TYPES) {
+			writer.write(',');
+			writer.write(type.name().toLowerCase());
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * write the statistics of the current state of the environment as a row, with
+	 * each gene given as its average magnitude (see Genome).
+	 * 
+	 * @param writer
+	 * @param environment
+	 * @param emerged     number of species that emerged since the last row
+	 * @param extinct     number of species that went extinct since the last row
+	 * @throws IOException
+	 */
+	private static void writeRow(Writer writer, Environment environment, int emerged, int extinct)
+			throws IOException {
+		PopulationStats stats = environment.getStats();
+		Speciation species = environment.getSpeciation();
+
+		writer.write(Integer.toString(environment.getSimTime()));
+		writer.write(',');
+		writer.write(Integer.toString(stats.getPopulation()));
+		writer.write(',');
+		writer.write(Long.toString(stats.getBiomass()));
+		writer.write(',');
+		writer.write(Integer.toString(environment.getGenomes().size()));
+		writer.write(',');
+		writer.write(Integer.toString(species.getCount()));
+		writer.write(',');
+		writer.write(Integer.toString(emerged));
+		writer.write(',');
+		writer.write(Integer.toString(extinct));
+		for (GeneType type : GENE_TYPES) {
+			writer.write(',');
+			writer.write(Float.toString(stats.getGeneMagnitude(type)));
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * run a simulation with the options given on the command line.
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		BatchRunner runner;
+
+		try {
+			runner = new BatchRunner(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		try {
+			runner.run();
+		} catch (IOException e) {
+			System.err.println("file error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
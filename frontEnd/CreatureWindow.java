@@ -1,7 +1,12 @@
 package frontEnd;
 
 import creatures.Creature;
+import creatures.PlantStore;
+import genetics.GeneType;
+import genetics.Genome;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
@@ -12,21 +17,126 @@ import javafx.stage.Stage;
  *
  */
 public class CreatureWindow extends Stage {
+	private final EnvironmentView VIEW; // display of the environment the displayed plant lives in
+	private final int X; // position of the tile the displayed plant lives on
+	private final int Y; // ^
+	private final long PLANT_ID; // id of the displayed plant
+	private final long GENOME; // genome of the displayed plant
+
+	private ProgressBar energyOutput; // reference for updating of graphical output
+	private ProgressBar sizeOutput; // ^
+	private ProgressBar ageOutput; // ^
 
 	/**
-	 * initialise the window with the graphical elements provided by the creature
-	 * class.
+	 * initialise the window with graphical elements displaying the plant's data.
 	 * 
-	 * @param creature creature to get graphical elements from
+	 * @param view    display of the environment the plant lives in
+	 * @param x       position of the tile the plant lives on
+	 * @param y       ^
+	 * @param plantId id of the plant to display the data of
 	 */
-	public CreatureWindow(Creature creature) {
-		VBox stats = creature.getStatsBox();
+	public CreatureWindow(EnvironmentView view, int x, int y, long plantId) {
+		PlantStore plants = view.getSnapshot().getPlants(x, y);
+
+		this.VIEW = view;
+		this.X = x;
+		this.Y = y;
+		this.PLANT_ID = plantId;
+		this.GENOME = plants.getGenome(plants.indexOf(plantId));
+
+		VBox stats = getStatsBox();
 		Scene scene = new Scene(stats);
 
 		this.setAlwaysOnTop(true);
 		this.setMinWidth(300);
 
 		setScene(scene);
-		setTitle("Simulation");
+		setTitle("Plant " + plantId + " - " + view.getName());
+		refresh();
+	}
+
+	/**
+	 * get the display of the environment the displayed plant lives in.
+	 * 
+	 * @return
+	 */
+	public EnvironmentView getView() {
+		return VIEW;
+	}
+
+	/**
+	 * plant id getter.
+	 * 
+	 * @return
+	 */
+	public long getPlantId() {
+		return PLANT_ID;
+	}
+
+	/**
+	 * generate a graphical item to display creature outputs and local references to
+	 * allow live updating.
+	 * 
+	 * @return VBox containing creature data outputs (energy, size, age)
+	 */
+	private VBox getStatsBox() {
+		VBox box = new VBox();
+		VBox[] stats = new VBox[3];
+		VBox genetics = getGeneticsBox();
+
+		energyOutput = new ProgressBar();
+		sizeOutput = new ProgressBar();
+		ageOutput = new ProgressBar();
+
+		for (int i = 0; i < 3; i++) {
+			stats[i] = new VBox();
+			box.getChildren().add(stats[i]);
+		}
+
+		stats[0].getChildren().add(new Label("Energy:"));
+		stats[0].getChildren().add(energyOutput);
+		stats[1].getChildren().add(new Label("Size:"));
+		stats[1].getChildren().add(sizeOutput);
+		stats[2].getChildren().add(new Label("Age:"));
+		stats[2].getChildren().add(ageOutput);
+
+		box.getChildren().add(genetics);
+
+		return box;
+	}
+
+	/**
+	 * generates graphical elements displaying the values of each gene in the
+	 * plant's genome.
+	 * 
+	 * @return
+	 */
+	private VBox getGeneticsBox() {
+		VBox output = new VBox();
+		VBox geneOutput;
+
+		for (GeneType type : GeneType.values()) {
+			geneOutput = new VBox();
+			geneOutput.getChildren().add(new Label(type.alias() + ":"));
+			geneOutput.getChildren().add(new ProgressBar(Genome.getMagnitude(GENOME, type)));
+			output.getChildren().add(geneOutput);
+		}
+
+		return output;
+	}
+
+	/**
+	 * update graphical output of plant data from the state of the environment
+	 * currently displayed (left as last seen if the plant has died).
+	 */
+	public void refresh() {
+		PlantStore plants = VIEW.getSnapshot().getPlants(X, Y);
+		int i = plants.indexOf(PLANT_ID);
+
+		if (i >= 0) {
+			energyOutput.setProgress(plants.getEnergy(i) / Creature.maxEnergy(plants.getSize(i)));
+			sizeOutput.setProgress(plants.getSize(i) / Genome.getGeneValue(GENOME, GeneType.SIZE_CAP));
+			ageOutput.setProgress(plants.getAge(i) / Genome.getGeneValue(GENOME, GeneType.AGE_CAP));
+		}
 	}
 }
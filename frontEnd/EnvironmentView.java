@@ -0,0 +1,674 @@
+package frontEnd;
+
+import java.io.File;
+import java.io.IOException;
+
+import creatures.Creature;
+import environments.Checkpoint;
+import environments.Environment;
+import environments.EnvironmentSnapshot;
+import environments.PopulationHistory;
+import environments.PopulationStats;
+import environments.Simulation;
+import environments.TimeSeries;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import genetics.GeneType;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.geometry.Pos;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.Chart;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart.Data;
+import javafx.scene.chart.XYChart.Series;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+
+/**
+ * handles controls, statistics and graphical appearance of an environment.
+ * 
+ * @author danpr
+ *
+ */
+public class EnvironmentView extends VBox {
+	private static final int HISTORY_LENGTH = 5000; // number of time-steps of history to show in the charts
+	private static final int CONTROL_SPACING = 10; // control components spacing (pixels)
+	private static final int MIN_KILL_PERIOD = 1; // min/max number of time-steps between cullings
+	private static final int MAX_KILL_PERIOD = 10000; // ^
+	private static final int MIN_KILL_RADIUS = 0; // min/max radius of area to cull (clears square 2x+1 tall and 2x+1
+													// wide)
+	private static final int MAX_KILL_RADIUS = 10; // ^
+
+	private static final int FRAME_TIME = 1000; // milliseconds between simulation batches when simulating continuously
+	private static final long DRAW_PERIOD = 33000000L; // min nanoseconds between drawing the grid
+	private static final long CHART_PERIOD = 250000000L; // min nanoseconds between updating the charts
+
+	private final AppRoot ROOT; // reference for program-wide access
+	private final Simulation SIMULATION; // simulation of the environment being displayed and controlled
+
+	private EnvironmentSnapshot snapshot; // state of the environment currently displayed
+	private AnimationTimer frameTimer; // trigger for drawing newly published states at display rate
+	private long lastDraw = 0; // time the grid was last drawn (nanoseconds)
+	private long lastChart = 0; // time the charts were last updated (nanoseconds)
+	private boolean chartsStale = false; // whether the charts are behind the state currently displayed
+
+	private BarChart<String, Number> sizeHistogram; // reference for updating of statistical output
+	private LineChart<Number, Number> biomassGraph; // ^
+	private LineChart<Number, Number> geneGraph; // ^
+	private BarChart<String, Number>[] geneHistograms = new BarChart[GeneType.values().length]; // ^
+
+
+	private HBox controls; // controls bar above environment
+	private GridView simArea; // display area of the simulation
+
+	private CheckBox killPeriodicCheck; // input tick-box to enable/disable periodic culling
+	private TextField killPeriodInput; // input for period of cull
+	private TextField killAreaInput; // input for radius of cull
+
+	/**
+	 * initialise as a display of the given environment.
+	 * 
+	 * @param environment environment to display and control
+	 * @param root        reference for program-wide access
+	 */
+	public EnvironmentView(Environment environment, AppRoot root) {
+		super();
+
+		controls = new HBox();
+
+		this.ROOT = root;
+		this.SIMULATION = new Simulation(environment, FRAME_TIME, root.getScheduler());
+		this.snapshot = SIMULATION.getSnapshot();
+		initControls(environment);
+		initGrid();
+		this.getChildren().add(controls);
+		this.getChildren().add(simArea);
+		refresh();
+
+		frameTimer = new AnimationTimer() {
+			/**
+			 * on each frame, draw the latest state of the environment (if it has
+			 * changed and the grid has not been drawn too recently), and bring the
+			 * charts up to date less often, so that many environments can be
+			 * displayed without holding up the interface
+			 */
+			@Override
+			public void handle(long now) {
+				if (SIMULATION.getSnapshot() != snapshot && now - lastDraw >= DRAW_PERIOD) {
+					snapshot = SIMULATION.getSnapshot();
+					lastDraw = now;
+					refreshGrid();
+				}
+				if (chartsStale && now - lastChart >= CHART_PERIOD) {
+					lastChart = now;
+					refreshCharts();
+				}
+			}
+		};
+		frameTimer.start();
+		SIMULATION.start();
+	}
+
+	/**
+	 * initialise the controls bar and actions of each input.
+	 */
+	private void initControls(Environment environment) {
+		HBox stepControls = new HBox();
+		Button step1 = new Button();
+		Button step10 = new Button();
+		Button step100 = new Button();
+		Button step1000 = new Button();
+		HBox timeControls = new HBox();
+		Button timeStop = new Button();
+		Button time1 = new Button();
+		Button time10 = new Button();
+		Button time100 = new Button();
+		Button time1000 = new Button();
+		HBox killControls = new HBox();
+		Button killAll = new Button();
+		Button seedLife = new Button();
+		Button save = new Button();
+		VBox killPeriodBox = new VBox();
+		VBox killAreaBox = new VBox();
+		Label killPeriodLabel = new Label();
+		Label killAreaLabel = new Label();
+		killPeriodicCheck = new CheckBox();
+		killPeriodInput = new TextField();
+		killAreaInput = new TextField();
+
+		step1.setText("Step 1");
+		step1.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateSingle(1);
+			}
+		});
+
+		step10.setText("Step 10");
+		step10.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateSingle(10);
+			}
+		});
+
+		step100.setText("Step 100");
+		step100.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateSingle(100);
+			}
+		});
+
+		step1000.setText("Step 1000");
+		step1000.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateSingle(1000);
+			}
+		});
+
+		timeStop.setText("Sim Stop");
+		timeStop.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateContinuous(0);
+			}
+		});
+
+		time1.setText("Sim Speed x1");
+		time1.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateContinuous(1);
+			}
+		});
+
+		time10.setText("Sim Speed x10");
+		time10.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateContinuous(10);
+			}
+		});
+
+		time100.setText("Sim Speed x100");
+		time100.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateContinuous(100);
+			}
+		});
+
+		time1000.setText("Sim Speed x1000");
+		time1000.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.simulateContinuous(1000);
+			}
+		});
+
+		killAll.setText("Clear");
+		killAll.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.SIMULATION.submit(() -> environment.killAll());
+			}
+		});
+
+		seedLife.setText("New Plant");
+		seedLife.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.SIMULATION.submit(() -> environment.initCreatures(1, 1, 1));
+			}
+		});
+
+		save.setText("Save");
+		save.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				EnvironmentView.this.saveCheckpoint(environment);
+			}
+		});
+
+		killPeriodicCheck.setText("Periodic Cull");
+		killPeriodicCheck.setSelected(environment.isPeriodicCull());
+		killPeriodInput.setText("" + environment.getCullPeriod());
+		killAreaInput.setText("" + environment.getCullRadius());
+		killPeriodicCheck.setOnAction((ActionEvent event) -> correctInput());
+		killPeriodInput.setOnAction((ActionEvent event) -> correctInput());
+		killAreaInput.setOnAction((ActionEvent event) -> correctInput());
+		killPeriodLabel.setText("Cull Period");
+		killAreaLabel.setText("Cull Radius");
+
+		killPeriodBox.getChildren().add(killPeriodLabel);
+		killPeriodBox.getChildren().add(killPeriodInput);
+		killPeriodBox.setAlignment(Pos.CENTER);
+		killAreaBox.getChildren().add(killAreaLabel);
+		killAreaBox.getChildren().add(killAreaInput);
+		killAreaBox.setAlignment(Pos.CENTER);
+
+		stepControls.getChildren().add(step1);
+		stepControls.getChildren().add(step10);
+		stepControls.getChildren().add(step100);
+		stepControls.getChildren().add(step1000);
+		timeControls.getChildren().add(timeStop);
+		timeControls.getChildren().add(time1);
+		timeControls.getChildren().add(time10);
+		timeControls.getChildren().add(time100);
+		timeControls.getChildren().add(time1000);
+		killControls.getChildren().add(killAll);
+		killControls.getChildren().add(seedLife);
+		killControls.getChildren().add(save);
+		killControls.getChildren().add(killPeriodicCheck);
+		killControls.getChildren().add(killPeriodBox);
+		killControls.getChildren().add(killAreaBox);
+		controls.getChildren().add(stepControls);
+		controls.getChildren().add(timeControls);
+		controls.getChildren().add(killControls);
+		controls.setSpacing(CONTROL_SPACING);
+	}
+
+	/**
+	 * initialise the graphical tile grid.
+	 */
+	private void initGrid() {
+		simArea = new GridView(this, ROOT);
+	}
+
+	/**
+	 * get a name for the environment displayed, to tell it apart from others.
+	 * 
+	 * @return
+	 */
+	public String getName() {
+		return "Environment " + (SIMULATION.getNumber() + 1) + " (seed " + SIMULATION.getEnvironment().getSeed()
+				+ ")";
+	}
+
+	/**
+	 * get the state of the environment currently displayed.
+	 * 
+	 * @return
+	 */
+	public EnvironmentSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * ask where to save the environment, then save it between time-steps on the
+	 * simulation thread, reporting any failure back on the interface thread.
+	 * 
+	 * @param environment environment being simulated
+	 */
+	private void saveCheckpoint(Environment environment) {
+		FileChooser chooser = new FileChooser();
+		File file;
+
+		chooser.setTitle("Save Environment");
+		chooser.setInitialFileName("environment.evo");
+		file = chooser.showSaveDialog(getScene().getWindow());
+		if (file != null) {
+			SIMULATION.submit(() -> {
+				try {
+					Checkpoint.save(environment, file.toPath());
+				} catch (IOException e) {
+					Platform.runLater(() -> {
+						Alert alert = new Alert(AlertType.ERROR, file + ": " + e.getMessage());
+
+						alert.setHeaderText("Could not save the environment");
+						alert.show();
+					});
+				}
+			});
+		}
+	}
+
+	/**
+	 * stop simulating and drawing the environment.
+	 */
+	public void close() {
+		frameTimer.stop();
+		SIMULATION.shutdown();
+	}
+
+	/**
+	 * generate a size histogram for the population of this environment.
+	 * 
+	 * @return
+	 */
+	private Chart sizeHistogram() {
+		CategoryAxis xAxis = new CategoryAxis();
+		NumberAxis yAxis = new NumberAxis();
+		Series<String, Number> series = new Series<String, Number>();
+
+		xAxis.setLabel("Size");
+		yAxis.setLabel("Number");
+		sizeHistogram = new BarChart<String, Number>(xAxis, yAxis);
+		sizeHistogram.setTitle("Creature size");
+		series.setName("Size");
+		sizeHistogram.getData().add(series);
+
+		refreshSizeHistogram();
+		return sizeHistogram;
+	}
+
+	/**
+	 * update the size histogram (if exists) with the current state of the
+	 * simulation.
+	 */
+	private void refreshSizeHistogram() {
+		if (sizeHistogram != null) {
+			Series<String, Number> series;
+			ObservableList<Data<String, Number>> data;
+			PopulationStats stats = snapshot.getStats();
+
+			series = sizeHistogram.getData().get(0);
+
+			data = series.getData();
+
+			for (int i = 1; i < Creature.MAX_SIZE; i++) {
+				if (data.size() < i) {
+					data.add(new Data<String, Number>("" + i, stats.getSizeCount(i)));
+				} else {
+					data.get(i - 1).setYValue(stats.getSizeCount(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * generate a biomass over time graph for the population of this environment.
+	 * 
+	 * @return
+	 */
+	private Chart biomassGraph() {
+		NumberAxis xAxis = new NumberAxis();
+		NumberAxis yAxis = new NumberAxis();
+		Series<Number, Number> series = new Series<Number, Number>();
+
+		xAxis.setLabel("Time");
+		yAxis.setLabel("Total Biomass");
+		biomassGraph = new LineChart<Number, Number>(xAxis, yAxis);
+		biomassGraph.setTitle("Biomass Over Time");
+		series.setName("Total Biomass");
+
+		biomassGraph.getData().add(series);
+		refreshBiomassGraph();
+		return biomassGraph;
+	}
+
+	/**
+	 * update the biomass graph (if exists) with the history sampled by the
+	 * simulation.
+	 */
+	private void refreshBiomassGraph() {
+		PopulationHistory history = SIMULATION.getHistory();
+
+		if (biomassGraph != null) {
+			synchronized (history) {
+				showHistory(biomassGraph.getData().get(0), history.getBiomass());
+			}
+		}
+	}
+
+	/**
+	 * generate a gene value over time graph for the population of this environment.
+	 * 
+	 * @return
+	 */
+	private Chart geneGraph() {
+		NumberAxis xAxis = new NumberAxis();
+		NumberAxis yAxis = new NumberAxis();
+		Series<Number, Number>[] seriesSet = new Series[GeneType.values().length];
+
+		for (int i = 0; i < seriesSet.length; i++) {
+			seriesSet[i] = new Series<Number, Number>();
+			seriesSet[i].setName(GeneType.values()[i].alias());
+		}
+
+		xAxis.setLabel("Time");
+		yAxis.setLabel("Gene Values (proportional)");
+		geneGraph = new LineChart<Number, Number>(xAxis, yAxis);
+		geneGraph.setTitle("Gene Values Over Time");
+
+		geneGraph.getData().addAll(seriesSet);
+		refreshGeneGraph();
+		return geneGraph;
+	}
+
+	/**
+	 * update the gene graph (if exists) with the history sampled by the
+	 * simulation.
+	 */
+	private void refreshGeneGraph() {
+		PopulationHistory history = SIMULATION.getHistory();
+
+		if (geneGraph != null) {
+			synchronized (history) {
+				for (GeneType type : GeneType.values()) {
+					showHistory(geneGraph.getData().get(type.ordinal()), history.getGene(type));
+				}
+			}
+		}
+	}
+
+	/**
+	 * bring a series in line with a recorded history, by adding the values
+	 * recorded since it was last updated and removing those older than
+	 * HISTORY_LENGTH time-steps. Existing data points are never changed.
+	 * 
+	 * @param series
+	 * @param history
+	 */
+	private void showHistory(Series<Number, Number> series, TimeSeries history) {
+		ObservableList<Data<Number, Number>> data = series.getData();
+		int shownTime = Integer.MIN_VALUE; // time of newest value already shown
+		int oldestTime; // time of oldest value to keep showing
+		int first;
+		int stale = 0;
+
+		if (history.size() == 0) {
+			return;
+		}
+		if (!data.isEmpty()) {
+			shownTime = data.get(data.size() - 1).getXValue().intValue();
+		}
+
+		first = history.size();
+		while (first > 0 && history.getTime(first - 1) > shownTime) {
+			first--;
+		}
+		for (int i = first; i < history.size(); i++) {
+			data.add(new Data<Number, Number>(history.getTime(i), history.getValue(i)));
+		}
+
+		oldestTime = Math.max(history.getTime(0), history.getTime(history.size() - 1) - HISTORY_LENGTH);
+		while (stale < data.size() && data.get(stale).getXValue().intValue() < oldestTime) {
+			stale++;
+		}
+		data.remove(0, stale);
+	}
+
+	/**
+	 * generate a gene value histogram for each gene for the population of this
+	 * environment.
+	 * 
+	 * @return
+	 */
+	private Chart[] geneHistograms() {
+		CategoryAxis xAxis[] = new CategoryAxis[GeneType.values().length];
+		NumberAxis yAxis[] = new NumberAxis[GeneType.values().length];
+		Series<String, Number> series[] = new Series[GeneType.values().length];
+
+		for (int i = 0; i < GeneType.values().length; i++) {
+			xAxis[i] = new CategoryAxis();
+			yAxis[i] = new NumberAxis();
+			xAxis[i].setLabel("Gene Value");
+			yAxis[i].setLabel("Number");
+
+			geneHistograms[i] = new BarChart<String, Number>(xAxis[i], yAxis[i]);
+			geneHistograms[i].setTitle("Distribution of " + GeneType.values()[i].alias());
+
+			series[i] = new Series<String, Number>();
+			series[i].setName(GeneType.values()[i].alias());
+			geneHistograms[i].getData().add(series[i]);
+		}
+
+		refreshGeneHistograms();
+		return geneHistograms;
+	}
+
+	/**
+	 * update the gene histograms (if exists) with the current state of the
+	 * simulation.
+	 */
+	private void refreshGeneHistograms() {
+		PopulationStats stats = snapshot.getStats();
+		GeneType type;
+
+		for (int i = 0; i < GeneType.values().length; i++) {
+			if (geneHistograms[i] != null) {
+				Series<String, Number> series = geneHistograms[i].getData().get(0);
+				ObservableList<Data<String, Number>> data = series.getData();
+
+				type = GeneType.values()[i];
+				if (stats.getPopulation() != 0) {
+					for (int j = 0; j < type.STEPS; j++) {
+						if (data.size() <= j) {
+							data.add(new Data<String, Number>("" + type.value(j), stats.getGeneCount(type, j)));
+						} else {
+							data.get(j).setYValue(stats.getGeneCount(type, j));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * collect the size histogram, biomass graph, and gene graphs into an array.
+	 * 
+	 * @return
+	 */
+	public Chart[] getBasicCharts() {
+		Chart[] charts = new Chart[3];
+
+		charts[0] = sizeHistogram();
+		charts[1] = biomassGraph();
+		charts[2] = geneGraph();
+
+		return charts;
+	}
+
+	/**
+	 * collect the gene value histograms into an array.
+	 * 
+	 * @return
+	 */
+	public Chart[] getGeneHistograms() {
+		return geneHistograms();
+	}
+
+	/**
+	 * read the input for cull period and cull area, move it within the min/max
+	 * values if necessary, and pass it on to the environment.
+	 */
+	public void correctInput() {
+		int periodInput;
+		int areaInput;
+
+		try {
+			periodInput = Integer.parseInt(killPeriodInput.getText());
+			areaInput = Integer.parseInt(killAreaInput.getText());
+
+			if (periodInput < MIN_KILL_PERIOD) {
+				periodInput = MIN_KILL_PERIOD;
+			}
+			if (periodInput > MAX_KILL_PERIOD) {
+				periodInput = MAX_KILL_PERIOD;
+			}
+			if (areaInput < MIN_KILL_RADIUS) {
+				areaInput = MIN_KILL_RADIUS;
+			}
+			if (areaInput > MAX_KILL_RADIUS) {
+				areaInput = MAX_KILL_RADIUS;
+			}
+		} catch (NumberFormatException e) {
+			periodInput = MIN_KILL_PERIOD;
+			areaInput = MIN_KILL_RADIUS;
+		}
+
+		final boolean killPeriodic = killPeriodicCheck.isSelected();
+		final int killPeriod = periodInput;
+		final int killRadius = areaInput;
+
+		killPeriodInput.setText("" + periodInput);
+		killAreaInput.setText("" + areaInput);
+		SIMULATION.submit(() -> SIMULATION.getEnvironment().setPeriodicCull(killPeriodic, killPeriod, killRadius));
+	}
+
+	/**
+	 * request a single batch of time-steps, which is simulated on the simulation
+	 * thread and drawn once published.
+	 * 
+	 * @param step number of time-steps in batch
+	 */
+	public void simulateSingle(int step) {
+		correctInput();
+		SIMULATION.step(step);
+	}
+
+	/**
+	 * simulate a batch of time-steps every FRAME_TIME milliseconds until stopped.
+	 * 
+	 * @param speed number of time-steps per batch, or 0 to stop
+	 */
+	public void simulateContinuous(int speed) {
+		correctInput();
+		SIMULATION.setSpeed(speed);
+	}
+
+	/**
+	 * refresh the graphical appearance of the environment and statistical output
+	 * from the state currently displayed.
+	 */
+	public void refresh() {
+		refreshGrid();
+		refreshCharts();
+	}
+
+	/**
+	 * redraw the grid from the state currently displayed, and mark the charts to
+	 * be brought up to date.
+	 */
+	private void refreshGrid() {
+		simArea.refresh(snapshot);
+		chartsStale = true;
+
+		ROOT.refreshCreatureWindows();
+	}
+
+	/**
+	 * update the statistical output from the state currently displayed.
+	 */
+	private void refreshCharts() {
+		refreshSizeHistogram();
+		refreshGeneHistograms();
+		refreshBiomassGraph();
+		refreshGeneGraph();
+		chartsStale = false;
+	}
+}
@@ -0,0 +1,185 @@
+package frontEnd;
+
+import creatures.Creature;
+import creatures.Plant;
+import creatures.PlantStore;
+import environments.EnvironmentSnapshot;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+
+/**
+ * handles graphical appearance of the tile grid of an environment, drawn onto a
+ * single canvas from snapshots of the environment. Only tiles whose plants have
+ * changed since they were last drawn are redrawn, columns shared with the last
+ * drawn snapshot are skipped without looking at their tiles, and clicks are matched to
+ * plants by their position in the drawn snapshot rather than through scene
+ * nodes.
+ * 
+ * @author danpr
+ *
+ */
+public class GridView extends Canvas {
+	private static final int TILE_SIZE = 60; // graphical size of tile
+	private static final int OUTLINE_WIDTH = 2; // width of the outline around each plant
+	private static final Color PLANT_FILL = Color.web(Plant.PLANT_COLOR); // colour of plants
+	private static final Color TILE_FILL = Color.WHITE; // colour of empty ground
+	private static final Color GRID_LINE = Color.BLACK; // colour of the lines between tiles
+
+	private final AppRoot ROOT; // reference for program-wide access
+	private final EnvironmentView VIEW; // display of the environment this grid is part of
+
+	private EnvironmentSnapshot snapshot; // state of the environment last drawn
+	private int[][] drawnVersions; // version of the plants on each tile when it was last drawn
+
+	/**
+	 * initialise as a display of the tile grid of the environment displayed by the
+	 * given view.
+	 * 
+	 * @param view display of the environment
+	 * @param root reference for program-wide access
+	 */
+	public GridView(EnvironmentView view, AppRoot root) {
+		super(view.getSnapshot().getWidth() * TILE_SIZE, view.getSnapshot().getHeight() * TILE_SIZE);
+		this.ROOT = root;
+		this.VIEW = view;
+		this.snapshot = view.getSnapshot();
+		this.drawnVersions = new int[snapshot.getWidth()][snapshot.getHeight()];
+
+		this.setOnMouseClicked((MouseEvent event) -> {
+			openCreatureWindow(event.getX(), event.getY());
+		});
+		redrawAll();
+	}
+
+	/**
+	 * redraw each tile whose plants have changed since it was last drawn.
+	 * 
+	 * @param snapshot state of the environment to draw
+	 */
+	public void refresh(EnvironmentSnapshot snapshot) {
+		GraphicsContext graphics = getGraphicsContext2D();
+		EnvironmentSnapshot drawn = this.snapshot;
+
+		this.snapshot = snapshot;
+		for (int i = 0; i < drawnVersions.length; i++) {
+			if (snapshot.sharesColumn(drawn, i)) {
+				continue;
+			}
+			for (int j = 0; j < drawnVersions[0].length; j++) {
+				if (snapshot.getPlants(i, j).getVersion() != drawnVersions[i][j]) {
+					drawTile(graphics, i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * redraw every tile.
+	 */
+	public void redrawAll() {
+		GraphicsContext graphics = getGraphicsContext2D();
+
+		for (int i = 0; i < drawnVersions.length; i++) {
+			for (int j = 0; j < drawnVersions[0].length; j++) {
+				drawTile(graphics, i, j);
+			}
+		}
+	}
+
+	/**
+	 * draw a single tile and its plants, smallest first so that larger plants are
+	 * drawn over them.
+	 * 
+	 * @param graphics
+	 * @param x
+	 * @param y
+	 */
+	private void drawTile(GraphicsContext graphics, int x, int y) {
+		PlantStore plants = snapshot.getPlants(x, y);
+		double left = x * TILE_SIZE;
+		double top = y * TILE_SIZE;
+		double radius;
+		double centreX;
+		double centreY;
+
+		graphics.setFill(TILE_FILL);
+		graphics.fillRect(left, top, TILE_SIZE, TILE_SIZE);
+		graphics.setStroke(GRID_LINE);
+		graphics.setLineWidth(1);
+		graphics.strokeRect(left + 0.5, top + 0.5, TILE_SIZE - 1, TILE_SIZE - 1);
+
+		for (int i = plants.getCount() - 1; i >= 0; i--) {
+			radius = radius(plants.getSize(i));
+			centreX = left + offset(Creature.posOnTile(plants.getId(i)) % 3, radius);
+			centreY = top + offset(Creature.posOnTile(plants.getId(i)) / 3, radius);
+
+			graphics.setFill(GRID_LINE);
+			graphics.fillOval(centreX - radius - OUTLINE_WIDTH, centreY - radius - OUTLINE_WIDTH,
+					(radius + OUTLINE_WIDTH) * 2, (radius + OUTLINE_WIDTH) * 2);
+			graphics.setFill(PLANT_FILL);
+			graphics.fillOval(centreX - radius, centreY - radius, radius * 2, radius * 2);
+		}
+		drawnVersions[x][y] = plants.getVersion();
+	}
+
+	/**
+	 * open a creature window for the plant drawn at the given point, if any.
+	 * 
+	 * @param pointX
+	 * @param pointY
+	 */
+	private void openCreatureWindow(double pointX, double pointY) {
+		int x = (int) (pointX / TILE_SIZE);
+		int y = (int) (pointY / TILE_SIZE);
+		PlantStore plants;
+		double radius;
+		double distX;
+		double distY;
+
+		if (pointX < 0 || pointY < 0 || x >= snapshot.getWidth() || y >= snapshot.getHeight()) {
+			return;
+		}
+		plants = snapshot.getPlants(x, y);
+		for (int i = 0; i < plants.getCount(); i++) { // drawn last (on top) first
+			radius = radius(plants.getSize(i)) + OUTLINE_WIDTH;
+			distX = pointX - x * TILE_SIZE - offset(Creature.posOnTile(plants.getId(i)) % 3, radius - OUTLINE_WIDTH);
+			distY = pointY - y * TILE_SIZE - offset(Creature.posOnTile(plants.getId(i)) / 3, radius - OUTLINE_WIDTH);
+			if (distX * distX + distY * distY <= radius * radius) {
+				ROOT.creatureWindow(VIEW, x, y, plants.getId(i));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * calculate the radius of a plant of the given size (plant size is
+	 * proportional to circle area).
+	 * 
+	 * @param size
+	 * @return
+	 */
+	private static double radius(int size) {
+		return Math.sqrt(size);
+	}
+
+	/**
+	 * calculate the distance from the edge of a tile to the centre of a plant,
+	 * placing it against the near edge, in the middle, or against the far edge.
+	 * 
+	 * @param column 0, 1 or 2 for near, middle or far
+	 * @param radius radius of the plant
+	 * @return
+	 */
+	private static double offset(int column, double radius) {
+		switch (column) {
+		case 0:
+			return radius + OUTLINE_WIDTH;
+		case 1:
+			return TILE_SIZE / 2.0;
+		default:
+			return TILE_SIZE - radius - OUTLINE_WIDTH;
+		}
+	}
+}
@@ -7,19 +7,27 @@ import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 
 /**
- * display area for one or more environments.
+ * display area for one or more environments, each simulated on the program's
+ * shared scheduler so that they run side by side.
  * @author danpr
  *
  */
 public class SimWindow extends Stage {
 	private static final int ENVIRONMENT_SPACING = 20; // display element spacing between environments
+	private static final int COLUMNS = 2; // number of environments displayed side by side before starting a new row
 	private final AppRoot root; // reference for program-wide access
+	private final int envWidth; // height and width of environments to generate
+	private final int envHeight; // ^
 
-	private ArrayList<Environment> environments = new ArrayList<Environment>(); // environments being displayed
+	private ArrayList<EnvironmentView> environments = new ArrayList<EnvironmentView>(); // environments being displayed
+	private GridPane environmentGrid = new GridPane(); // layout of the environments being displayed
 
 	/**
 	 * initialise with a new environment generated with the given parameters.
@@ -28,20 +36,67 @@ public class SimWindow extends Stage {
 	 * @param root reference for program-wide access
 	 */
 	public SimWindow(int envWidth, int envHeight, AppRoot root) {
-		GridPane environmentGrid = new GridPane();
-		Scene scene = new Scene(environmentGrid);
+		this(new Environment(envWidth, envHeight), root);
+	}
+
+	/**
+	 * initialise with the given environment, such as one restored from a
+	 * checkpoint.
+	 * @param environment environment to display
+	 * @param root reference for program-wide access
+	 */
+	public SimWindow(Environment environment, AppRoot root) {
+		VBox layout = new VBox();
+		Button newEnvironment = new Button();
+		Scene scene = new Scene(layout);
 		this.root = root;
+		this.envWidth = environment.getWidth();
+		this.envHeight = environment.getHeight();
 
 		environmentGrid.setHgap(ENVIRONMENT_SPACING);
 		environmentGrid.setVgap(ENVIRONMENT_SPACING);
-		
-		environments.add(new Environment(envWidth, envHeight, root));
 
-		environmentGrid.add(environments.get(0), 0, 0);
+		newEnvironment.setText("New Environment");
+		newEnvironment.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				SimWindow.this.addEnvironment();
+			}
+		});
 
-		root.statWindow(environments.get(0));
+		layout.getChildren().add(newEnvironment);
+		layout.getChildren().add(new ScrollPane(environmentGrid));
+
+		addEnvironment(environment);
+		setOnHidden((WindowEvent event) -> {
+			for (EnvironmentView view : environments) {
+				view.close();
+			}
+		});
 		
 		setScene(scene);
 		setTitle("Simulation");
 	}
-}
\ No newline at end of file
+
+	/**
+	 * display another newly generated environment, of the same size as the first
+	 * and with a random seed.
+	 */
+	public void addEnvironment() {
+		addEnvironment(new Environment(envWidth, envHeight));
+	}
+
+	/**
+	 * display the given environment alongside those already displayed, and open
+	 * its statistics window.
+	 * @param environment
+	 */
+	public void addEnvironment(Environment environment) {
+		EnvironmentView view = new EnvironmentView(environment, root);
+
+		environmentGrid.add(view, environments.size() % COLUMNS, environments.size() / COLUMNS);
+		environments.add(view);
+		root.statWindow(view);
+		sizeToScene();
+	}
+}
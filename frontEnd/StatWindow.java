@@ -1,6 +1,5 @@
 package frontEnd;
 
-import environments.Environment;
 import javafx.scene.Scene;
 import javafx.scene.chart.Chart;
 import javafx.scene.control.Label;
@@ -21,7 +20,7 @@ public class StatWindow extends Stage {
 	 * initialise with charts taken from the given environment.
 	 * @param environment
 	 */
-	public StatWindow(Environment environment) {
+	public StatWindow(EnvironmentView environment) {
 		Chart[] basicStats = environment.getBasicCharts();
 		Chart[] advancedStats = environment.getGeneHistograms();
 		VBox allStats = new VBox();
@@ -43,7 +42,7 @@ public class StatWindow extends Stage {
 		allStats.getChildren().add(advancedScroll);
 
 		setScene(scene);
-		setTitle("Statistics");
+		setTitle("Statistics - " + environment.getName());
 		setWidth(1600);
 	}
 }
\ No newline at end of file
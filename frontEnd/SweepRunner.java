@@ -0,0 +1,313 @@
+package frontEnd;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import environments.ParameterSweep;
+import environments.SimParameters;
+import environments.SweepResult;
+import genetics.GeneType;
+
+/**
+ * handles running a parameter sweep from the command line (see
+ * ParameterSweep), writing a summary of every run to a single file as comma
+ * separated values.
+ * 
+ * usage: SweepRunner [--option value]... (see USAGE)
+ * 
+ * @author danpr
+ *
+ */
+public class SweepRunner {
+	private static final String USAGE = "usage: SweepRunner [--vary name=v1,v2,... | name=from:to:step]..."
+			+ " [--param name=value]... [--replicates 1] [--steps 10000] [--seed 0] [--threads processors]"
+			+ " [--width 22] [--height 10] [--clusters 3] [--cluster-size 20] [--cluster-radius 2]"
+			+ " [--cull-period 0] [--cull-radius 0] [--out sweep.csv | -]\nparameters: "
+			+ String.join(", ", SimParameters.NAMES);
+	private static final GeneType[] GENE_TYPES = GeneType.values(); // cached to avoid copying values() on every row
+
+	private final ParameterSweep SWEEP; // sweep to run
+	private String out = "sweep.csv"; // file to write to ("-" for standard output)
+
+	/**
+	 * read the options given on the command line.
+	 * 
+	 * @param args
+	 */
+	private SweepRunner(String[] args) {
+		SimParameters parameters = SimParameters.DEFAULT;
+		String value;
+		int width = 22;
+		int height = 10;
+		int nClusters = 3;
+		int clusterSize = 20;
+		int clusterRadius = 2;
+		int killPeriod = 0;
+		int killRadius = 0;
+		int replicates = 1;
+		int steps = 10000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = 0;
+
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			}
+			if (args[i].equals("--param")) {
+				parameters = parameters.with(nameOf(args[i + 1]), Float.parseFloat(valueOf(args[i + 1])));
+			}
+		}
+		SWEEP = new ParameterSweep(parameters);
+
+		for (int i = 0; i < args.length; i += 2) {
+			value = args[i + 1];
+			switch (args[i]) {
+			case "--vary":
+				SWEEP.vary(nameOf(value), parseValues(valueOf(value)));
+				break;
+			case "--param":
+				break;
+			case "--replicates":
+				replicates = Integer.parseInt(value);
+				break;
+			case "--steps":
+				steps = Integer.parseInt(value);
+				break;
+			case "--seed":
+				seed = Long.parseLong(value);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(value);
+				break;
+			case "--width":
+				width = Integer.parseInt(value);
+				break;
+			case "--height":
+				height = Integer.parseInt(value);
+				break;
+			case "--clusters":
+				nClusters = Integer.parseInt(value);
+				break;
+			case "--cluster-size":
+				clusterSize = Integer.parseInt(value);
+				break;
+			case "--cluster-radius":
+				clusterRadius = Integer.parseInt(value);
+				break;
+			case "--cull-period":
+				killPeriod = Integer.parseInt(value);
+				break;
+			case "--cull-radius":
+				killRadius = Integer.parseInt(value);
+				break;
+			case "--out":
+				out = value;
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+		if (width < 1 || height < 1 || steps < 0 || replicates < 1 || threads < 1 || killPeriod < 0
+				|| killRadius < 0) {
+			throw new IllegalArgumentException("option out of range");
+		}
+		SWEEP.setSize(width, height);
+		SWEEP.setClusters(nClusters, clusterSize, clusterRadius);
+		SWEEP.setCull(killPeriod, killRadius);
+		SWEEP.setReplicates(replicates);
+		SWEEP.setSteps(steps);
+		SWEEP.setSeed(seed);
+		SWEEP.setThreads(threads);
+	}
+
+	/**
+	 * get the name from an option of the form name=value.
+	 * 
+	 * @param option
+	 * @return
+	 */
+	static String nameOf(String option) {
+		if (option.indexOf('=') < 0) {
+			throw new IllegalArgumentException("expected name=value, not " + option);
+		}
+		return option.substring(0, option.indexOf('='));
+	}
+
+	/**
+	 * get the value from an option of the form name=value.
+	 * 
+	 * @param option
+	 * @return
+	 */
+	static String valueOf(String option) {
+		return option.substring(option.indexOf('=') + 1);
+	}
+
+	/**
+	 * read a list of values given either as v1,v2,... or as from:to:step (both
+	 * ends included).
+	 * 
+	 * @param text
+	 * @return
+	 */
+	private static float[] parseValues(String text) {
+		String[] parts;
+		float from;
+		float to;
+		float step;
+		float[] values;
+		int count;
+
+		if (text.indexOf(':') < 0) {
+			parts = text.split(",");
+			values = new float[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				values[i] = Float.parseFloat(parts[i]);
+			}
+			return values;
+		}
+		parts = text.split(":");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("expected from:to:step, not " + text);
+		}
+		from = Float.parseFloat(parts[0]);
+		to = Float.parseFloat(parts[1]);
+		step = Float.parseFloat(parts[2]);
+		if (step <= 0 || to < from) {
+			throw new IllegalArgumentException("range out of order: " + text);
+		}
+		count = (int) Math.floor((to - from) / step + 1e-4) + 1;
+		values = new float[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = from + i * step;
+		}
+		return values;
+	}
+
+	/**
+	 * run the sweep and write a row for every run.
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void run() throws IOException, InterruptedException {
+		long startTime = System.nanoTime();
+		SweepResult[] results;
+
+		System.err.println("running " + SWEEP.getRunCount() + " runs of " + SWEEP.getGrid().size()
+				+ " parameter combinations");
+		results = SWEEP.run();
+		try (Writer writer = openOutput()) {
+			writeHeader(writer);
+			for (SweepResult result : results) {
+				writeRow(writer, result);
+			}
+		}
+		System.err.println("swept " + results.length + " runs in " + (System.nanoTime() - startTime) / 1000000
+				+ " ms");
+	}
+
+	/**
+	 * open the output file (or standard output) for buffered writing.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private Writer openOutput() throws IOException {
+		if (out.equals("-")) {
+			return new BufferedWriter(new OutputStreamWriter(System.out));
+		}
+		return new BufferedWriter(new FileWriter(out));
+	}
+
+	/**
+	 * write the names of each column.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	private static void writeHeader(Writer writer) throws IOException {
+		for (String name : SimParameters.NAMES) {
+			writer.write(name);
+			writer.write(',');
+		}
+		writer.write("replicate,seed,time,population,peak,biomass,genotypes,species,emerged,extinct");
+		for (GeneType type : GENE_TYPES) {
+			writer.write(',');
+			writer.write(type.name().toLowerCase());
+		}
+		writer.write(",millis\n");
+	}
+
+	/**
+	 * write the parameters and summary of a run as a row, with each gene given as
+	 * its average magnitude (see Genome).
+	 * 
+	 * @param writer
+	 * @param result
+	 * @throws IOException
+	 */
+	private static void writeRow(Writer writer, SweepResult result) throws IOException {
+		for (float value : result.getParameters().getValues()) {
+			writer.write(Float.toString(value));
+			writer.write(',');
+		}
+		writer.write(Integer.toString(result.getReplicate()));
+		writer.write(',');
+		writer.write(Long.toString(result.getSeed()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getTime()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getPopulation()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getPeakPopulation()));
+		writer.write(',');
+		writer.write(Long.toString(result.getBiomass()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getGenotypes()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getSpecies()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getEmerged()));
+		writer.write(',');
+		writer.write(Integer.toString(result.getExtinct()));
+		for (GeneType type : GENE_TYPES) {
+			writer.write(',');
+			writer.write(Float.toString(result.getGeneMagnitude(type)));
+		}
+		writer.write(',');
+		writer.write(Long.toString(result.getMillis()));
+		writer.write('\n');
+	}
+
+	/**
+	 * run a sweep with the options given on the command line.
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		SweepRunner runner;
+
+		try {
+			runner = new SweepRunner(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		try {
+			runner.run();
+		} catch (IOException e) {
+			System.err.println("output error: " + e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.err.println("sweep interrupted");
+			System.exit(1);
+		}
+	}
+}
@@ -1,23 +1,62 @@
 package genetics;
 
 /**
- * handles the designation of genes to describe different traits.
+ * handles the designation of genes to describe different traits, and the
+ * values each gene can take.
  * @author danpr
  *
  */
 public enum GeneType {
 	// creature genes, required
-	MUTATION_RATE,
-	REPRODUCE_BEHAVIOUR,
-	GROW_BEHAVIOUR,
-	AGE_CAP,
+	MUTATION_RATE(1, 10, 1),
+	REPRODUCE_BEHAVIOUR(0F, 0.9F, 0.1F),
+	GROW_BEHAVIOUR(0F, 0.9F, 0.1F),
+	AGE_CAP(100F, 1000F, 100F),
 
 	// creature genes, optional
-	SIZE_CAP,
-	STARTING_SIZE,
+	SIZE_CAP(1, 100, 1),
+	STARTING_SIZE(1, 5, 1),
 
 	// plant genes, required
-	SEED_RANGE;
+	SEED_RANGE(1, 10, 1);
+
+	static final GeneType[] TYPES = values(); // cached to avoid copying values() on every use
+
+	public final float MIN_VALUE; // min and max value of the gene
+	public final float MAX_VALUE; // ^
+	public final float INCREMENTS; // increments by which the gene can change
+	public final int STEPS; // number of different values the gene can take
+
+	private final float[] values; // value of the gene at each step
+	private final int bits; // width of the gene in a packed genome
+	private int offset; // position of the gene in a packed genome
+
+	static {
+		int offset = 0;
+		for (GeneType type : TYPES) {
+			type.offset = offset;
+			offset += type.bits;
+		}
+	}
+
+	/**
+	 * initialise with the given values.
+	 * @param minValue
+	 * @param maxValue
+	 * @param increments
+	 */
+	private GeneType(float minValue, float maxValue, float increments) {
+		this.MIN_VALUE = minValue;
+		this.MAX_VALUE = maxValue;
+		this.INCREMENTS = increments;
+		this.STEPS = Math.round((maxValue - minValue) / increments) + 1;
+
+		values = new float[STEPS];
+		for (int i = 0; i < STEPS; i++) {
+			values[i] = minValue + i * increments;
+		}
+		bits = 32 - Integer.numberOfLeadingZeros(STEPS - 1);
+	}
 
 	/**
 	 * translates this gene designation to a user readable name.
@@ -43,4 +82,47 @@ public enum GeneType {
 			return "Unknown Gene";
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * gets the value of this gene at the given step.
+	 * @param step
+	 * @return
+	 */
+	public float value(int step) {
+		return values[step];
+	}
+
+	/**
+	 * gets the step nearest to the given value, moved within the min/max values
+	 * if necessary.
+	 * @param value
+	 * @return
+	 */
+	public int step(float value) {
+		int step = Math.round((value - MIN_VALUE) / INCREMENTS);
+
+		if (step < 0) {
+			return 0;
+		} else if (step >= STEPS) {
+			return STEPS - 1;
+		} else {
+			return step;
+		}
+	}
+
+	/**
+	 * offset getter.
+	 * @return
+	 */
+	int offset() {
+		return offset;
+	}
+
+	/**
+	 * gets a mask covering the bits of this gene, before shifting by its offset.
+	 * @return
+	 */
+	long mask() {
+		return (1L << bits) - 1;
+	}
+}
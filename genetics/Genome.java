@@ -1,139 +1,165 @@
 package genetics;
 
-import java.util.ArrayList;
-import java.util.Random;
-
-import javafx.scene.control.Label;
-import javafx.scene.control.ProgressBar;
-import javafx.scene.layout.VBox;
+import environments.SimRandom;
 
 /**
- * handles all of the genes of a single creature.
+ * handles all of the genes of a single creature. A genome is packed into a
+ * single long, holding the step of each gene (see GeneType) in its own bits,
+ * so copying a genome is a primitive copy.
  * @author danpr
  *
  */
-public class Genome implements Cloneable {
-
-	protected ArrayList<Gene> genes;
-
-	/**
-	 * initialise an empty genome.
-	 */
-	public Genome() {
-		genes = new ArrayList<Gene>();
-	}
+public final class Genome {
+	public static final long EMPTY = 0L; // genome with every gene at its min value
 
 	/**
-	 * generate a deep copy of this genome.
+	 * genomes are primitives and never instantiated.
 	 */
-	@Override
-	public Object clone() throws CloneNotSupportedException {
-		Genome clone = (Genome) super.clone();
-		clone.genes = new ArrayList<Gene>();
-		for(Gene gene : this.genes){
-			clone.genes.add((Gene) gene.clone());
-		}
-		return clone;
+	private Genome() {
 	}
 
 	/**
-	 * generate a string containing the data of the each gene is this genome.
+	 * generate a string containing the data of the each gene in the given genome.
+	 * @param genome
+	 * @return
 	 */
-	@Override
-	public String toString() {
-		GeneType[] types = GeneType.values();
+	public static String toString(long genome) {
 		String result = "(";
-		for(GeneType type : types) {
-			if(getGene(type) != null) {
-				result += type + ": " + genes.get(type.ordinal()) + "\n";
-			}
+		for(GeneType type : GeneType.TYPES) {
+			result += type + ": " + getGeneValue(genome, type) + "+-" + type.INCREMENTS + "\n";
 		}
 		result += ")";
 		return result;
 	}
-	
+
 	/**
-	 * generates graphical elements displaying the values of each gene in this genome.
+	 * get the step (index of its value) of the specified gene.
+	 * @param genome
+	 * @param type
 	 * @return
 	 */
-	public VBox getOutput() {
-		VBox output = new VBox();
-		VBox[] geneOutputs = new VBox[genes.size()];
+	public static int getGeneStep(long genome, GeneType type) {
+		return (int) ((genome >>> type.offset()) & type.mask());
+	}
 
-		int n = 0;
-		GeneType[] types = GeneType.values();
-		
-		for(GeneType type : types) {
-			if(getGene(type) != null) {
-				geneOutputs[n] = new VBox();
-				geneOutputs[n].getChildren().add(new Label(type.alias() + ":"));
-				geneOutputs[n].getChildren().add(new ProgressBar(getGene(type).getMagnitude()));
-				output.getChildren().add(geneOutputs[n]);
-				n++;
+	/**
+	 * check whether every gene of the given genome is at one of its steps, with no
+	 * bits set outside the genes, as for a genome read back from a file.
+	 * @param genome
+	 * @return
+	 */
+	public static boolean isValid(long genome) {
+		long used = 0;
+		for (GeneType type : GeneType.TYPES) {
+			if (getGeneStep(genome, type) >= type.STEPS) {
+				return false;
 			}
+			used |= type.mask() << type.offset();
 		}
-		
-		return output;
+		return (genome & ~used) == 0;
+	}
+
+	/**
+	 * get the value of the specified gene.
+	 * @param genome
+	 * @param type
+	 * @return
+	 */
+	public static float getGeneValue(long genome, GeneType type) {
+		return type.value(getGeneStep(genome, type));
 	}
 
 	/**
-	 * gene getter by gene type.
+	 * gets the value of the specified gene normalised to such that the min and max
+	 * would be 0 and 1.
+	 * @param genome
 	 * @param type
 	 * @return
 	 */
-	public Gene getGene(GeneType type) {
-		return genes.get(type.ordinal());
+	public static float getMagnitude(long genome, GeneType type) {
+		return getGeneStep(genome, type) / (float) (type.STEPS - 1);
 	}
-	
+
 	/**
-	 * get the normalised values of all genes in this genome.
+	 * get the normalised values of all genes in the given genome.
+	 * @param genome
 	 * @return
 	 */
-	public float[] getMagnitudes() {
-		float[] magnitudes = new float[GeneType.values().length];
-		for(int i = 0; i < GeneType.values().length; i++) {
-			magnitudes[i] = getGene(GeneType.values()[i]).getMagnitude();
+	public static float[] getMagnitudes(long genome) {
+		float[] magnitudes = new float[GeneType.TYPES.length];
+		for(int i = 0; i < GeneType.TYPES.length; i++) {
+			magnitudes[i] = getMagnitude(genome, GeneType.TYPES[i]);
 		}
 		return magnitudes;
 	}
 
 	/**
-	 * bumper function for the specified gene.
+	 * measure how different two genomes are, as the sum over every gene of the
+	 * difference between their normalised values (see getMagnitude()).
+	 * @param a
+	 * @param b
+	 * @return 0 for identical genomes, up to the number of genes
+	 */
+	public static float distance(long a, long b) {
+		float distance = 0;
+		for (GeneType type : GeneType.TYPES) {
+			distance += Math.abs(getGeneStep(a, type) - getGeneStep(b, type)) / (float) (type.STEPS - 1);
+		}
+		return distance;
+	}
+
+	/**
+	 * set the step of the specified gene.
+	 * @param genome
 	 * @param type
-	 * @return
+	 * @param step index of the value in the gene's range
+	 * @return the changed genome
+	 */
+	public static long setGeneStep(long genome, GeneType type, int step) {
+		return (genome & ~(type.mask() << type.offset())) | ((long) step << type.offset());
+	}
+
+	/**
+	 * set the specified gene to the step nearest the given value, moved within the
+	 * gene's min/max values if necessary.
+	 * @param genome
+	 * @param type
+	 * @param value
+	 * @return the changed genome
 	 */
-	public float getGeneValue(GeneType type) {
-		return genes.get(type.ordinal()).getValue();
+	public static long setGeneValue(long genome, GeneType type, float value) {
+		return setGeneStep(genome, type, type.step(value));
 	}
-	
+
 	/**
-	 * counts the number of genes in this genome.
+	 * counts the number of genes in a genome.
 	 * @return
 	 */
-	public int getNumGenes() {
-		return genes.size();
+	public static int getNumGenes() {
+		return GeneType.TYPES.length;
 	}
 
 	/**
-	 * apply a number of random mutations to genes in this genome according to its mutation rate gene.
+	 * apply a number of random mutations to genes in the given genome according to
+	 * its mutation rate gene. Each mutation leaves a random gene incremented,
+	 * decremented or unchanged.
+	 * @param genome
+	 * @param rng source of randomness
+	 * @return the mutated genome
 	 */
-	public void mutate() {
-		Random rng = new Random();
-		int nMutations = (int) getGeneValue(GeneType.MUTATION_RATE);
+	public static long mutate(long genome, SimRandom rng) {
+		int nMutations = (int) getGeneValue(genome, GeneType.MUTATION_RATE);
+		GeneType type;
+		int step;
 
 		while (nMutations > 0) {
-			int randomI = rng.nextInt(genes.size());
-			genes.get(randomI).mutate();
+			type = GeneType.TYPES[rng.nextInt(GeneType.TYPES.length)];
+			step = getGeneStep(genome, type) + rng.nextInt(3) - 1; // random one of (-1, 0, or 1)
+			if (step >= 0 && step < type.STEPS) {
+				genome = setGeneStep(genome, type, step);
+			}
 			nMutations--;
 		}
+		return genome;
 	}
-
-	/**
-	 * add the given gene to this genome.
-	 * @param type
-	 * @param gene
-	 */
-	public void addGene(GeneType type, Gene gene) {
-		genes.add(type.ordinal(), gene);
-	}
-}
\ No newline at end of file
+}
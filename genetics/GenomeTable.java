@@ -0,0 +1,259 @@
+package genetics;
+
+import java.util.Arrays;
+
+/**
+ * handles storage of genomes by integer id, so that creature data can refer to
+ * a genome with a primitive. Genomes are interned: every creature with the same
+ * genome shares a single id, which counts how many creatures refer to it and
+ * is only forgotten once the last of them releases it. The number of creatures
+ * with any genome is therefore always known without counting.
+ * 
+ * The table is not synchronised, as it is never changed by more than one
+ * thread at once: the threads simulating tiles hold back their births and
+ * deaths until every stripe has finished (see StepContext).
+ * 
+ * @author danpr
+ *
+ */
+public class GenomeTable {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int EMPTY = -1; // id of an empty position in the index
+
+	private long[] genomes = new long[INITIAL_CAPACITY]; // packed genomes by id
+	private int[] counts = new int[INITIAL_CAPACITY]; // number of creatures with each genome by id (0 if free)
+	private int[] freeIds = new int[INITIAL_CAPACITY]; // ids released and available for reuse
+	private int nFree = 0; // number of ids in freeIds
+	private int nextId = 0; // lowest id never yet used
+	private int size = 0; // number of distinct genomes currently stored
+	private int total = 0; // number of creatures referring to stored genomes
+
+	private int[] index = newIndex(INITIAL_CAPACITY * 2); // ids by hash of their genome (open addressing)
+
+	/**
+	 * store the given genome, or count another creature with it if already
+	 * stored.
+	 * 
+	 * @param genome
+	 * @return id the genome can be retrieved by
+	 */
+	public int add(long genome) {
+		int position = find(genome);
+		int id = index[position];
+
+		if (id == EMPTY) {
+			id = allocate();
+			genomes[id] = genome;
+			index[position] = id;
+			size++;
+			if (size * 2 > index.length) {
+				rehash(index.length * 2);
+			}
+		}
+		counts[id]++;
+		total++;
+		return id;
+	}
+
+	/**
+	 * genome getter by id.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public long get(int id) {
+		return genomes[id];
+	}
+
+	/**
+	 * release one creature's reference to the genome with the given id, forgetting
+	 * the genome (and allowing the id to be reused) once none refer to it.
+	 * 
+	 * @param id
+	 */
+	public void release(int id) {
+		counts[id]--;
+		total--;
+		if (counts[id] == 0) {
+			remove(find(genomes[id]));
+			if (nFree == freeIds.length) {
+				freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+			}
+			freeIds[nFree] = id;
+			nFree++;
+			size--;
+		}
+	}
+
+	/**
+	 * find the id of the given genome.
+	 * 
+	 * @param genome
+	 * @return id, or -1 if no creature has the genome
+	 */
+	public int indexOf(long genome) {
+		return index[find(genome)];
+	}
+
+	/**
+	 * count the creatures with the genome of the given id.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public int getCount(int id) {
+		return counts[id];
+	}
+
+	/**
+	 * count the creatures with the given genome.
+	 * 
+	 * @param genome
+	 * @return
+	 */
+	public int getFrequency(long genome) {
+		int id = indexOf(genome);
+
+		return id == EMPTY ? 0 : counts[id];
+	}
+
+	/**
+	 * counts the number of distinct genomes currently stored.
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * counts the number of creatures referring to stored genomes.
+	 * 
+	 * @return
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * get one more than the highest id that may be in use.
+	 * 
+	 * @return
+	 */
+	public int getLimit() {
+		return nextId;
+	}
+
+	/**
+	 * check whether the given id refers to a stored genome.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public boolean isUsed(int id) {
+		return id >= 0 && id < nextId && counts[id] > 0;
+	}
+
+	/**
+	 * take an id that is not in use, enlarging the table if there are none.
+	 * 
+	 * @return
+	 */
+	private int allocate() {
+		int id;
+
+		if (nFree > 0) {
+			nFree--;
+			return freeIds[nFree];
+		}
+		id = nextId;
+		nextId++;
+		if (id == genomes.length) {
+			genomes = Arrays.copyOf(genomes, genomes.length * 2);
+			counts = Arrays.copyOf(counts, counts.length * 2);
+		}
+		return id;
+	}
+
+	/**
+	 * find the position in the index of the given genome, or the empty position
+	 * it would be stored at.
+	 * 
+	 * @param genome
+	 * @return
+	 */
+	private int find(long genome) {
+		int mask = index.length - 1;
+		int position = hash(genome) & mask;
+
+		while (index[position] != EMPTY && genomes[index[position]] != genome) {
+			position = (position + 1) & mask;
+		}
+		return position;
+	}
+
+	/**
+	 * empty the given position of the index, moving back any later genomes that
+	 * would no longer be found past the gap.
+	 * 
+	 * @param position
+	 */
+	private void remove(int position) {
+		int mask = index.length - 1;
+		int next = position;
+		int home;
+
+		index[position] = EMPTY;
+		while (true) {
+			next = (next + 1) & mask;
+			if (index[next] == EMPTY) {
+				return;
+			}
+			home = hash(genomes[index[next]]) & mask;
+			if (((next - home) & mask) >= ((next - position) & mask)) {
+				index[position] = index[next];
+				index[next] = EMPTY;
+				position = next;
+			}
+		}
+	}
+
+	/**
+	 * rebuild the index with the given number of positions.
+	 * 
+	 * @param capacity power of two
+	 */
+	private void rehash(int capacity) {
+		int[] old = index;
+
+		index = newIndex(capacity);
+		for (int id : old) {
+			if (id != EMPTY) {
+				index[find(genomes[id])] = id;
+			}
+		}
+	}
+
+	/**
+	 * create an empty index.
+	 * 
+	 * @param capacity power of two
+	 * @return
+	 */
+	private static int[] newIndex(int capacity) {
+		int[] index = new int[capacity];
+
+		Arrays.fill(index, EMPTY);
+		return index;
+	}
+
+	/**
+	 * spread the bits of a genome for use as a position in the index.
+	 * 
+	 * @param genome
+	 * @return
+	 */
+	private static int hash(long genome) {
+		return (int) ((genome * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+}
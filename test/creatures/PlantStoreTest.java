@@ -0,0 +1,148 @@
+package creatures;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import genetics.GenomeTable;
+
+/**
+ * tests that PlantStore keeps its plants in order of size through births,
+ * growth and deaths.
+ * 
+ * @author danpr
+ *
+ */
+public class PlantStoreTest {
+
+	/**
+	 * create a store holding plants of the given sizes in order, with ids from 0.
+	 * 
+	 * @param sizes
+	 * @return
+	 */
+	private static PlantStore sortedStore(int... sizes) {
+		PlantStore plants = new PlantStore(new GenomeTable());
+
+		for (int i = 0; i < sizes.length; i++) {
+			plants.add(i, 0, 0, 0, sizes[i]);
+		}
+		plants.sortNewborns();
+		return plants;
+	}
+
+	/**
+	 * list the ids of the plants of a store in index order.
+	 * 
+	 * @param plants
+	 * @return
+	 */
+	private static long[] ids(PlantStore plants) {
+		long[] ids = new long[plants.getCount()];
+
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = plants.getId(i);
+		}
+		return ids;
+	}
+
+	/**
+	 * check that the plants in order are in descending order of size.
+	 * 
+	 * @param plants
+	 */
+	private static void assertOrdered(PlantStore plants) {
+		for (int i = 1; i < plants.getSorted(); i++) {
+			assertTrue(plants.getSize(i - 1) >= plants.getSize(i), "plant " + i + " out of order");
+		}
+	}
+
+	@Test
+	public void sortNewbornsPutsEachInFrontOfItsSize() {
+		PlantStore plants = sortedStore(5, 3, 1);
+
+		plants.add(10, 0, 0, 0, 3);
+		plants.add(11, 0, 0, 0, 1);
+		assertEquals(3, plants.getSorted());
+		plants.sortNewborns();
+
+		assertEquals(5, plants.getSorted());
+		assertArrayEquals(new long[] { 0, 10, 1, 11, 2 }, ids(plants));
+		assertOrdered(plants);
+	}
+
+	@Test
+	public void growPlantSwapsWithFirstOfItsSize() {
+		PlantStore plants = sortedStore(4, 3, 3, 3, 1);
+
+		assertArrayEquals(new long[] { 0, 3, 2, 1, 4 }, ids(plants)); // newborns go in front of their size
+		assertEquals(1, plants.growPlant(3));
+		assertEquals(4, plants.getSize(1));
+		assertArrayEquals(new long[] { 0, 1, 2, 3, 4 }, ids(plants));
+		assertOrdered(plants);
+	}
+
+	@Test
+	public void growPlantSkipsPlantsMarkedDead() {
+		PlantStore plants = sortedStore(4, 3, 3, 3);
+
+		plants.markDead(1);
+		assertEquals(2, plants.growPlant(3));
+		assertEquals(4, plants.getSize(2));
+
+		plants.removeDead();
+		assertArrayEquals(new long[] { 0, 1, 2 }, ids(plants));
+		assertEquals(3, plants.getSorted());
+		assertOrdered(plants);
+	}
+
+	@Test
+	public void removeDeadKeepsOrderAndNewborns() {
+		PlantStore plants = sortedStore(6, 5, 4, 3);
+
+		plants.add(10, 0, 0, 0, 1);
+		plants.add(11, 0, 0, 0, 2);
+		plants.markDead(1);
+		plants.markDead(4);
+		plants.removeDead();
+
+		assertArrayEquals(new long[] { 0, 2, 3, 11 }, ids(plants));
+		assertEquals(3, plants.getSorted());
+		assertOrdered(plants);
+		plants.sortNewborns();
+		assertArrayEquals(new long[] { 0, 2, 3, 11 }, ids(plants));
+	}
+
+	@Test
+	public void clearForgetsPlantsMarkedDead() {
+		PlantStore plants = sortedStore(2, 1);
+		int version;
+
+		plants.markDead(0);
+		plants.clear();
+		plants.add(10, 0, 0, 0, 1);
+		version = plants.getVersion();
+		plants.removeDead();
+
+		assertEquals(version, plants.getVersion());
+		assertArrayEquals(new long[] { 10 }, ids(plants));
+	}
+
+	@Test
+	public void trimmedStoreCanBeReused() {
+		PlantStore plants = sortedStore(9, 8, 7, 6, 5, 4, 3, 2, 1);
+
+		plants.reset(0);
+		plants.trim();
+		for (int i = 0; i < 9; i++) {
+			plants.add(i, 0, 0, 0, i + 1);
+		}
+		plants.sortNewborns();
+
+		assertEquals(9, plants.getCount());
+		assertEquals(9, plants.getSize(0));
+		assertOrdered(plants);
+	}
+}
@@ -0,0 +1,91 @@
+package environments;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * tests that an environment restored from a checkpoint carries on exactly as
+ * the saved one would have, and that damaged checkpoints are refused.
+ * 
+ * @author danpr
+ *
+ */
+public class CheckpointTest {
+	private static final int PARAMETERS_OFFSET = 4 + 4 + 4 + 4 + 8 + 8; // magic, version, size, seed, random state
+
+	@TempDir
+	Path directory; // scratch directory for checkpoint files
+
+	/**
+	 * create an environment with some history behind it.
+	 * 
+	 * @return
+	 */
+	private static Environment simulated() {
+		Environment environment = new Environment(60, 60, 3, 20, 2, 11L);
+
+		environment.setPeriodicCull(true, 70, 2);
+		environment.simulateSingle(300);
+		return environment;
+	}
+
+	@Test
+	public void savingARestoredEnvironmentGivesTheSameFile() throws IOException {
+		Path saved = directory.resolve("saved.evo");
+		Path resaved = directory.resolve("resaved.evo");
+
+		Checkpoint.save(simulated(), saved);
+		Checkpoint.save(Checkpoint.load(saved), resaved);
+
+		assertArrayEquals(Files.readAllBytes(saved), Files.readAllBytes(resaved));
+	}
+
+	@Test
+	public void restoredEnvironmentCarriesOnTheSame() throws IOException {
+		Environment original = simulated();
+		Environment restored;
+		Path saved = directory.resolve("saved.evo");
+		Path originalEnd = directory.resolve("original.evo");
+		Path restoredEnd = directory.resolve("restored.evo");
+
+		Checkpoint.save(original, saved);
+		restored = Checkpoint.load(saved);
+		original.simulateSingle(200);
+		restored.simulateSingle(200);
+		Checkpoint.save(original, originalEnd);
+		Checkpoint.save(restored, restoredEnd);
+
+		assertEquals(original.getPopulation(), restored.getPopulation());
+		assertEquals(original.getSimTime(), restored.getSimTime());
+		assertArrayEquals(Files.readAllBytes(originalEnd), Files.readAllBytes(restoredEnd));
+	}
+
+	@Test
+	public void damagedCheckpointsAreRefused() throws IOException {
+		Path saved = directory.resolve("saved.evo");
+		byte[] bytes;
+
+		Checkpoint.save(simulated(), saved);
+		bytes = Files.readAllBytes(saved);
+
+		Files.write(saved, ByteBuffer.allocate(bytes.length).put(bytes).putInt(0, 0).array());
+		assertThrows(IOException.class, () -> Checkpoint.load(saved));
+
+		Files.write(saved,
+				ByteBuffer.allocate(bytes.length).put(bytes).putFloat(PARAMETERS_OFFSET, Float.NaN).array());
+		assertThrows(IOException.class, () -> Checkpoint.load(saved));
+
+		Files.write(saved, Arrays.copyOf(bytes, bytes.length - 8));
+		assertThrows(IOException.class, () -> Checkpoint.load(saved));
+	}
+}
@@ -0,0 +1,51 @@
+package environments;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests that a simulation is decided entirely by its seed: the same seed gives
+ * the same trajectory, whether run again or split across threads.
+ * 
+ * @author danpr
+ *
+ */
+public class DeterminismTest {
+	private static final int STEPS = 400; // time-steps to compare
+
+	/**
+	 * simulate an environment, recording the population and biomass after every
+	 * time-step.
+	 * 
+	 * @param seed
+	 * @param threads
+	 * @return population and biomass of each time-step, one after the other
+	 */
+	private static long[] trajectory(long seed, int threads) {
+		Environment environment = new Environment(60, 60, 3, 20, 2, seed);
+		long[] trajectory = new long[STEPS * 2];
+
+		environment.setThreads(threads);
+		environment.setPeriodicCull(true, 50, 3);
+		for (int i = 0; i < STEPS; i++) {
+			environment.simulateSingle(1);
+			trajectory[i * 2] = environment.getPopulation();
+			trajectory[i * 2 + 1] = environment.getStats().getBiomass();
+		}
+		environment.setThreads(1);
+		return trajectory;
+	}
+
+	@Test
+	public void sameSeedGivesSameTrajectory() {
+		assertArrayEquals(trajectory(7, 1), trajectory(7, 1));
+		assertArrayEquals(trajectory(7, 4), trajectory(7, 4));
+	}
+
+	@Test
+	public void threadCountDoesNotChangeTrajectory() {
+		assertArrayEquals(trajectory(7, 1), trajectory(7, 2));
+		assertArrayEquals(trajectory(7, 1), trajectory(7, 4));
+	}
+}
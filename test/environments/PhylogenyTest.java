@@ -0,0 +1,94 @@
+package environments;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests that Phylogeny finds common ancestors and prunes ancestry that no
+ * longer leads to a living plant.
+ * 
+ * @author danpr
+ *
+ */
+public class PhylogenyTest {
+
+	@Test
+	public void commonAncestorOfRelatives() {
+		Phylogeny lineages = new Phylogeny();
+		int founder = lineages.add(1, -1, 0);
+		int child = lineages.add(2, founder, 1);
+		int sibling = lineages.add(3, founder, 1);
+		int grandchild = lineages.add(4, child, 2);
+		int stranger = lineages.add(5, -1, 0);
+
+		assertEquals(founder, lineages.getCommonAncestor(grandchild, sibling));
+		assertEquals(child, lineages.getCommonAncestor(grandchild, child));
+		assertEquals(grandchild, lineages.getCommonAncestor(grandchild, grandchild));
+		assertEquals(-1, lineages.getCommonAncestor(grandchild, stranger));
+		assertEquals(founder, lineages.getFounder(grandchild));
+	}
+
+	@Test
+	public void deadAncestorWithOneLineIsSkipped() {
+		Phylogeny lineages = new Phylogeny();
+		int founder = lineages.add(1, -1, 0);
+		int child = lineages.add(2, founder, 1);
+		int sibling = lineages.add(3, founder, 1);
+		int grandchild = lineages.add(4, child, 2);
+
+		lineages.release(child);
+
+		assertFalse(lineages.isUsed(child));
+		assertEquals(founder, lineages.getParent(grandchild));
+		assertEquals(2, lineages.getGeneration(grandchild));
+		assertEquals(founder, lineages.getCommonAncestor(grandchild, sibling));
+		assertEquals(3, lineages.size());
+	}
+
+	@Test
+	public void deadLinesArePrunedBackToTheFounder() {
+		Phylogeny lineages = new Phylogeny();
+		int founder = lineages.add(1, -1, 0);
+		int child = lineages.add(2, founder, 1);
+		int grandchild = lineages.add(3, child, 2);
+
+		lineages.release(founder);
+		lineages.release(child);
+		assertTrue(lineages.isUsed(founder));
+		assertEquals(1, lineages.getFounderCount());
+
+		lineages.release(grandchild);
+		assertEquals(0, lineages.size());
+		assertEquals(0, lineages.getFounderCount());
+	}
+
+	@Test
+	public void sizeStaysWithinTwiceTheLivingPlants() {
+		Phylogeny lineages = new Phylogeny();
+		ArrayList<Integer> living = new ArrayList<Integer>();
+		Random random = new Random(5);
+		int founders = 10;
+
+		for (int i = 0; i < founders; i++) {
+			living.add(lineages.add(i, -1, 0));
+		}
+		for (int time = 1; time < 20000; time++) {
+			if (random.nextInt(100) < 52 || living.size() < 2) {
+				living.add(lineages.add(founders + time, living.get(random.nextInt(living.size())), time));
+			} else {
+				lineages.release(living.remove(random.nextInt(living.size())));
+			}
+			assertTrue(lineages.size() <= 2 * living.size() + founders, "too many nodes at " + time);
+		}
+		for (int node : living) {
+			assertTrue(lineages.isLiving(node));
+			assertEquals(node, lineages.getCommonAncestor(node, node));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package genetics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests that GenomeTable interns genomes and still finds every stored genome
+ * after others are removed from its index.
+ * 
+ * @author danpr
+ *
+ */
+public class GenomeTableTest {
+
+	@Test
+	public void sameGenomeSharesAnId() {
+		GenomeTable genomes = new GenomeTable();
+		int a = genomes.add(42L);
+		int b = genomes.add(42L);
+
+		assertEquals(a, b);
+		assertEquals(2, genomes.getCount(a));
+		assertEquals(1, genomes.size());
+		assertEquals(2, genomes.getTotal());
+
+		genomes.release(a);
+		assertEquals(42L, genomes.get(a));
+		assertEquals(1, genomes.getFrequency(42L));
+		genomes.release(b);
+		assertEquals(-1, genomes.indexOf(42L));
+		assertFalse(genomes.isUsed(a));
+		assertEquals(0, genomes.getTotal());
+	}
+
+	@Test
+	public void releasedIdIsReused() {
+		GenomeTable genomes = new GenomeTable();
+		int a = genomes.add(1L);
+
+		genomes.add(2L);
+		genomes.release(a);
+		assertEquals(a, genomes.add(3L));
+		assertEquals(2, genomes.getLimit());
+	}
+
+	/**
+	 * releasing genomes in a crowded index must move later genomes back into the
+	 * gap (backward-shift deletion), or they can no longer be found.
+	 */
+	@Test
+	public void everyGenomeIsFoundAfterRemovals() {
+		GenomeTable genomes = new GenomeTable();
+		HashMap<Long, Integer> ids = new HashMap<Long, Integer>();
+		Random random = new Random(3);
+		long genome;
+
+		for (int round = 0; round < 20000; round++) {
+			genome = random.nextInt(2000) * 0x100000001L; // few distinct values, many sharing hash bits
+			if (ids.containsKey(genome) && random.nextBoolean()) {
+				genomes.release(ids.get(genome));
+				if (genomes.getFrequency(genome) == 0) {
+					ids.remove(genome);
+				}
+			} else {
+				ids.put(genome, genomes.add(genome));
+			}
+		}
+
+		assertEquals(ids.size(), genomes.size());
+		for (long stored : ids.keySet()) {
+			assertEquals((int) ids.get(stored), genomes.indexOf(stored));
+			assertEquals(stored, genomes.get(ids.get(stored)));
+		}
+		for (long other = 0; other < 2000; other++) {
+			if (!ids.containsKey(other * 0x100000001L)) {
+				assertEquals(-1, genomes.indexOf(other * 0x100000001L));
+			}
+		}
+	}
+}